@@ -1,15 +1,28 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+import java.util.zip.CRC32;
 
 // Base Product class
 abstract class Product implements Cloneable {
     String name;
     double price;
     boolean available;
+    final int sku;
 
     public Product(String name, double price, boolean available) {
         this.name = name;
         this.price = price;
         this.available = available;
+        this.sku = ProductCatalog.register(this);
     }
 
     public abstract Product clone();
@@ -17,6 +30,186 @@ abstract class Product implements Cloneable {
     public String getName() { return name; }
     public double getPrice() { return price; }
     public boolean isAvailable() { return available; }
+    public int getSku() { return sku; }
+    public long getPriceCents() { return Math.round(price * 100); }
+}
+
+// Catalog interning one stable integer SKU per Product subclass
+final class ProductCatalog {
+    private static final Map<Class<?>, Integer> skus = new HashMap<>();
+    private static Product[] products = new Product[8];
+
+    private ProductCatalog() {}
+
+    // SKUs start at 1 so that 0 can mark an empty slot in IntIntMap
+    static synchronized int register(Product product) {
+        Integer sku = skus.get(product.getClass());
+        if (sku == null) {
+            sku = skus.size() + 1;
+            skus.put(product.getClass(), sku);
+            if (sku >= products.length) {
+                products = Arrays.copyOf(products, products.length * 2);
+            }
+            // The first product constructed for a SKU is its catalog listing
+            products[sku] = product;
+        }
+        return sku;
+    }
+
+    static synchronized Product get(int sku) {
+        return products[sku];
+    }
+
+    static synchronized int size() {
+        return skus.size();
+    }
+
+    // SKU registered for the given Product class name, or 0 if none is
+    static synchronized int skuOf(String className) {
+        for (Map.Entry<Class<?>, Integer> entry : skus.entrySet()) {
+            if (entry.getKey().getName().equals(className)) {
+                return entry.getValue();
+            }
+        }
+        return 0;
+    }
+
+    // Unit price in cents indexed by SKU
+    static synchronized long[] priceCentsBySku() {
+        long[] prices = new long[skus.size() + 1];
+        for (int sku = 1; sku < prices.length; sku++) {
+            prices[sku] = products[sku].getPriceCents();
+        }
+        return prices;
+    }
+}
+
+// Open-addressing int -> int map with linear probing; key 0 marks an empty slot
+final class IntIntMap {
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    int size() { return size; }
+    boolean isEmpty() { return size == 0; }
+
+    // Slot-level access for allocation-free iteration: for (i < capacity()) if (keyAt(i) != 0) ...
+    int capacity() { return keys.length; }
+    int keyAt(int slot) { return keys[slot]; }
+    int valueAt(int slot) { return values[slot]; }
+
+    boolean containsKey(int key) {
+        return keys[indexOf(key)] == key;
+    }
+
+    int get(int key) {
+        int slot = indexOf(key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    // Returns the previous value, or 0 if the key was absent
+    int put(int key, int value) {
+        int slot = indexOf(key);
+        if (keys[slot] == key) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insert(slot, key, value);
+        return 0;
+    }
+
+    // Returns the new value
+    int addTo(int key, int delta) {
+        int slot = indexOf(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    // Returns the removed value, or 0 if the key was absent
+    int remove(int key) {
+        int slot = indexOf(key);
+        if (keys[slot] != key) {
+            return 0;
+        }
+        int removed = values[slot];
+        shiftBack(slot);
+        size--;
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    // Slot holding key, or the empty slot where it would be inserted
+    private int indexOf(int key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved.");
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, int key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[newCapacity];
+        values = new int[newCapacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = indexOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
 }
 
 // Concrete Product classes
@@ -45,6 +238,11 @@ class Headphones extends Product {
 // Discount Strategy Interface
 interface DiscountStrategy {
     double applyDiscount(double totalAmount);
+
+    // Cents charged for one cart line before applyDiscount; by default every unit is charged
+    default long lineCents(long unitPriceCents, int quantity) {
+        return unitPriceCents * quantity;
+    }
 }
 
 // Concrete Discount Strategies
@@ -55,6 +253,10 @@ class PercentageDiscountStrategy implements DiscountStrategy {
         this.percentage = percentage;
     }
 
+    public double getPercentage() {
+        return percentage;
+    }
+
     @Override
     public double applyDiscount(double totalAmount) {
         return totalAmount - (totalAmount * percentage / 100);
@@ -64,79 +266,1491 @@ class PercentageDiscountStrategy implements DiscountStrategy {
 class BuyOneGetOneFreeStrategy implements DiscountStrategy {
     @Override
     public double applyDiscount(double totalAmount) {
-        return totalAmount; // No additional discount logic here for simplicity
+        return totalAmount; // Pairs are discounted per line in lineCents
+    }
+
+    // Every second unit of the same product is free
+    @Override
+    public long lineCents(long unitPriceCents, int quantity) {
+        return unitPriceCents * (quantity - quantity / 2);
+    }
+}
+
+// Per-SKU stock counts; reservations are taken and released by compare-and-set, with no global lock
+class Inventory {
+    private final AtomicIntegerArray stock;
+
+    public Inventory() {
+        this(ProductCatalog.size());
+    }
+
+    public Inventory(int maxSku) {
+        this.stock = new AtomicIntegerArray(maxSku + 1);
+    }
+
+    public void setStock(Product product, int quantity) {
+        stock.set(product.getSku(), quantity);
+    }
+
+    public int getStock(Product product) {
+        return stock.get(product.getSku());
+    }
+
+    // Takes quantity units only if all of them are in stock, so stock never goes negative
+    public boolean tryReserve(int sku, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Reserved quantity must be positive: " + quantity);
+        }
+        while (true) {
+            int current = stock.get(sku);
+            if (current < quantity) {
+                return false;
+            }
+            if (stock.compareAndSet(sku, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(int sku, int quantity) {
+        stock.addAndGet(sku, quantity);
     }
 }
 
 // Cart Class
 class Cart {
-    private Map<Product, Integer> items = new HashMap<>();
+    // SKU -> quantity; at most one line per catalog SKU, so memory is bounded by catalog size
+    private final IntIntMap items = new IntIntMap(ProductCatalog.size());
     private DiscountStrategy discountStrategy;
+    // Stock reserved for this cart's lines; null means stock is not tracked
+    private final Inventory inventory;
+
+    // Running subtotal in integer cents, line-priced under the current strategy,
+    // so incremental updates never drift from a full rescan
+    private long subtotalCents;
+    // Bumped on every mutation; the discounted total is cached per (version, strategy)
+    private long version;
+    private long cachedVersion = -1;
+    private DiscountStrategy cachedStrategy;
+    private double cachedTotal;
+
+    public Cart() {
+        this(null);
+    }
+
+    public Cart(Inventory inventory) {
+        this.inventory = inventory;
+    }
 
     public void addProduct(Product product, int quantity) {
-        if (product.isAvailable()) {
-            Product clonedProduct = product.clone();
-            items.put(clonedProduct, items.getOrDefault(clonedProduct, 0) + quantity);
+        if (quantity <= 0) {
+            System.out.println("Quantity must be positive.");
+            return;
+        }
+        if (product.isAvailable() && (inventory == null || inventory.tryReserve(product.getSku(), quantity))) {
+            int sku = product.getSku();
+            int previous = items.get(sku);
+            items.addTo(sku, quantity);
+            subtotalCents += lineCents(sku, previous + quantity) - lineCents(sku, previous);
+            version++;
         } else {
             System.out.println(product.getName() + " is not available.");
         }
     }
 
+    // A quantity of 0 removes the line; negative quantities are rejected, since they would hand stock back
     public void updateQuantity(Product product, int newQuantity) {
-        if (items.containsKey(product)) {
-            items.put(product, newQuantity);
+        if (newQuantity < 0) {
+            System.out.println("Quantity cannot be negative.");
+            return;
+        }
+        if (newQuantity == 0) {
+            removeProduct(product);
+            return;
+        }
+        int sku = product.getSku();
+        if (items.containsKey(sku)) {
+            int delta = newQuantity - items.get(sku);
+            if (inventory != null) {
+                if (delta > 0 && !inventory.tryReserve(sku, delta)) {
+                    System.out.println(product.getName() + " is not available.");
+                    return;
+                }
+                if (delta < 0) {
+                    inventory.release(sku, -delta);
+                }
+            }
+            int previous = items.put(sku, newQuantity);
+            subtotalCents += lineCents(sku, newQuantity) - lineCents(sku, previous);
+            version++;
         }
     }
 
     public void removeProduct(Product product) {
-        items.remove(product);
+        int sku = product.getSku();
+        if (items.containsKey(sku)) {
+            int removed = items.remove(sku);
+            if (inventory != null) {
+                inventory.release(sku, removed);
+            }
+            subtotalCents -= lineCents(sku, removed);
+            version++;
+        }
     }
 
     public double calculateTotal() {
-        double total = 0;
-        for (Map.Entry<Product, Integer> entry : items.entrySet()) {
-            total += entry.getKey().getPrice() * entry.getValue();
+        if (cachedVersion != version || cachedStrategy != discountStrategy) {
+            double total = subtotalCents / 100.0;
+            cachedTotal = discountStrategy != null ? discountStrategy.applyDiscount(total) : total;
+            cachedVersion = version;
+            cachedStrategy = discountStrategy;
         }
+        return cachedTotal;
+    }
+
+    // Full rescan of every line, bypassing the running subtotal and the cache
+    public double recalculateTotal() {
+        double total = rescanCents() / 100.0;
         return discountStrategy != null ? discountStrategy.applyDiscount(total) : total;
     }
 
+    // Line pricing depends on the strategy, so switching strategies rescans the lines once
     public void setDiscountStrategy(DiscountStrategy discountStrategy) {
         this.discountStrategy = discountStrategy;
+        this.subtotalCents = rescanCents();
+        version++;
+    }
+
+    // Returns every reserved unit to stock and empties the cart, e.g. when the cart expires
+    public void releaseReservations() {
+        if (inventory != null) {
+            for (int i = 0; i < items.capacity(); i++) {
+                if (items.keyAt(i) != 0) {
+                    inventory.release(items.keyAt(i), items.valueAt(i));
+                }
+            }
+        }
+        items.clear();
+        subtotalCents = 0;
+        version++;
+    }
+
+    public DiscountStrategy getDiscountStrategy() {
+        return discountStrategy;
+    }
+
+    public int lineCount() {
+        return items.size();
+    }
+
+    // Copies the cart's lines into the given columns starting at offset; returns the line count
+    int copyLines(int[] skus, int[] quantities, int offset) {
+        int line = offset;
+        for (int i = 0; i < items.capacity(); i++) {
+            int sku = items.keyAt(i);
+            if (sku != 0) {
+                skus[line] = sku;
+                quantities[line] = items.valueAt(i);
+                line++;
+            }
+        }
+        return line - offset;
+    }
+
+    public int getQuantity(Product product) {
+        return items.get(product.getSku());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    private long rescanCents() {
+        long cents = 0;
+        for (int i = 0; i < items.capacity(); i++) {
+            int sku = items.keyAt(i);
+            if (sku != 0) {
+                cents += lineCents(sku, items.valueAt(i));
+            }
+        }
+        return cents;
+    }
+
+    private long lineCents(int sku, int quantity) {
+        long unitPriceCents = ProductCatalog.get(sku).getPriceCents();
+        return discountStrategy != null ? discountStrategy.lineCents(unitPriceCents, quantity) : unitPriceCents * quantity;
     }
 
     public void viewCart() {
+        StringBuilder summary = SUMMARY_BUFFER.get();
+        summary.setLength(0);
+        try {
+            writeSummary(summary);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        System.out.println(summary);
+    }
+
+    // Reused per thread by viewCart so page renders do not build a new StringBuilder each time
+    private static final ThreadLocal<StringBuilder> SUMMARY_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    // Writes the one-line cart summary straight into the caller's sink, without intermediate strings
+    public void writeSummary(Appendable out) throws IOException {
+        if (items.isEmpty()) {
+            out.append("Your cart is empty.");
+            return;
+        }
+        out.append("You have ");
+        boolean first = true;
+        for (int i = 0; i < items.capacity(); i++) {
+            int sku = items.keyAt(i);
+            if (sku != 0) {
+                if (!first) {
+                    out.append(" and ");
+                }
+                appendInt(out, items.valueAt(i));
+                out.append(' ').append(ProductCatalog.get(sku).getName()).append("(s)");
+                first = false;
+            }
+        }
+        out.append(" in your cart.");
+    }
+
+    // Same summary as ASCII bytes; throws BufferOverflowException if the buffer is too small
+    public void writeSummary(ByteBuffer out) {
         if (items.isEmpty()) {
-            System.out.println("Your cart is empty.");
+            putAscii(out, "Your cart is empty.");
+            return;
+        }
+        putAscii(out, "You have ");
+        boolean first = true;
+        for (int i = 0; i < items.capacity(); i++) {
+            int sku = items.keyAt(i);
+            if (sku != 0) {
+                if (!first) {
+                    putAscii(out, " and ");
+                }
+                putInt(out, items.valueAt(i));
+                out.put((byte) ' ');
+                putAscii(out, ProductCatalog.get(sku).getName());
+                putAscii(out, "(s)");
+                first = false;
+            }
+        }
+        putAscii(out, " in your cart.");
+    }
+
+    // Streams the cart's lines without copying them; the cursor is not safe against concurrent mutation
+    public LineCursor lines() {
+        return new LineCursor(items);
+    }
+
+    static final class LineCursor {
+        private final IntIntMap items;
+        private int slot = -1;
+
+        LineCursor(IntIntMap items) {
+            this.items = items;
+        }
+
+        public boolean next() {
+            while (++slot < items.capacity()) {
+                if (items.keyAt(slot) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Product product() { return ProductCatalog.get(items.keyAt(slot)); }
+        public int sku() { return items.keyAt(slot); }
+        public int quantity() { return items.valueAt(slot); }
+
+        public void reset() {
+            slot = -1;
+        }
+    }
+
+    private static void appendInt(Appendable out, int value) throws IOException {
+        if (value < 0) {
+            out.append('-');
+        }
+        long magnitude = Math.abs((long) value);
+        long divisor = 1;
+        while (divisor * 10 <= magnitude) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + magnitude / divisor % 10));
+        }
+    }
+
+    private static void putInt(ByteBuffer out, int value) {
+        if (value < 0) {
+            out.put((byte) '-');
+        }
+        long magnitude = Math.abs((long) value);
+        long divisor = 1;
+        while (divisor * 10 <= magnitude) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + magnitude / divisor % 10));
+        }
+    }
+
+    private static void putAscii(ByteBuffer out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            out.put(c < 128 ? (byte) c : (byte) '?');
+        }
+    }
+}
+
+// Batch pricing engine: carts laid out column-wise so a strategy can be evaluated for many carts at once
+class BatchPricingEngine {
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private final int cartCount;
+    // Lines of cart c occupy [lineStart[c], lineStart[c + 1]) in the skus/quantities columns
+    private final int[] lineStart;
+    private final int[] skus;
+    private final int[] quantities;
+
+    public BatchPricingEngine(List<Cart> carts) {
+        this.cartCount = carts.size();
+        this.lineStart = new int[cartCount + 1];
+        int lines = 0;
+        for (int c = 0; c < cartCount; c++) {
+            lineStart[c] = lines;
+            lines += carts.get(c).lineCount();
+        }
+        lineStart[cartCount] = lines;
+        this.skus = new int[lines];
+        this.quantities = new int[lines];
+        for (int c = 0; c < cartCount; c++) {
+            carts.get(c).copyLines(skus, quantities, lineStart[c]);
+        }
+    }
+
+    public int cartCount() {
+        return cartCount;
+    }
+
+    // Same arithmetic as Cart.calculateTotal, so results are identical to the per-cart path
+    public double[] reprice(DiscountStrategy strategy) {
+        double[] totals = new double[cartCount];
+        repriceRange(strategy, ProductCatalog.priceCentsBySku(), totals, 0, cartCount);
+        return totals;
+    }
+
+    public double[] repriceParallel(DiscountStrategy strategy) {
+        double[] totals = new double[cartCount];
+        ForkJoinPool.commonPool().invoke(new RepriceTask(strategy, ProductCatalog.priceCentsBySku(), totals, 0, cartCount));
+        return totals;
+    }
+
+    private void repriceRange(DiscountStrategy strategy, long[] priceCents, double[] totals, int from, int to) {
+        for (int c = from; c < to; c++) {
+            long cents = 0;
+            for (int line = lineStart[c]; line < lineStart[c + 1]; line++) {
+                long unitPriceCents = priceCents[skus[line]];
+                cents += strategy != null ? strategy.lineCents(unitPriceCents, quantities[line]) : unitPriceCents * quantities[line];
+            }
+            double total = cents / 100.0;
+            totals[c] = strategy != null ? strategy.applyDiscount(total) : total;
+        }
+    }
+
+    @SuppressWarnings("serial") // Serializable only through its superclass; never serialized
+    private final class RepriceTask extends RecursiveAction {
+        private final DiscountStrategy strategy;
+        private final long[] priceCents;
+        private final double[] totals;
+        private final int from;
+        private final int to;
+
+        RepriceTask(DiscountStrategy strategy, long[] priceCents, double[] totals, int from, int to) {
+            this.strategy = strategy;
+            this.priceCents = priceCents;
+            this.totals = totals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                repriceRange(strategy, priceCents, totals, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RepriceTask(strategy, priceCents, totals, from, mid),
+                    new RepriceTask(strategy, priceCents, totals, mid, to));
+        }
+    }
+}
+
+// Cart repository serving many concurrent sessions
+class CartRepository {
+    @SuppressWarnings("serial") // Serializable only through its superclass; never serialized
+    private final class Shard extends LinkedHashMap<String, CartSession> {
+        final ReentrantLock lock = new ReentrantLock();
+        final int maxCarts;
+        long evictions;
+
+        Shard(int maxCarts) {
+            super(16, 0.75f, true); // access order: eldest entry is least recently used
+            this.maxCarts = maxCarts;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CartSession> eldest) {
+            if (size() > maxCarts) {
+                evictions++;
+                expire(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static final class CartSession {
+        final Cart cart;
+        long lastAccessNanos;
+        // Set under the cart lock when the session is evicted; work that finds it set retries the lookup
+        boolean dead;
+
+        CartSession(Inventory inventory) {
+            this.cart = new Cart(inventory);
+        }
+    }
+
+    private final Shard[] shards;
+    private final long idleTimeoutNanos;
+    private final Inventory inventory;
+    // Set once recovery has finished; every later mutation is logged while the cart is locked
+    private volatile CartWriteAheadLog log;
+
+    // maxCarts is the memory budget: each cart holds at most one line per catalog SKU
+    public CartRepository(int shardCount, int maxCarts, long idleTimeout, TimeUnit unit, Inventory inventory) {
+        if (maxCarts < 1) {
+            throw new IllegalArgumentException("maxCarts must be positive: " + maxCarts);
+        }
+        // shardCount rounded up to a power of two, but never more shards than carts, so the per-shard
+        // budgets add up to at most maxCarts
+        int requested = shardCount <= 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        int shardsPow2 = Math.min(requested, Integer.highestOneBit(maxCarts));
+        this.shards = new Shard[shardsPow2];
+        int perShard = maxCarts / shardsPow2;
+        for (int i = 0; i < shardsPow2; i++) {
+            shards[i] = new Shard(perShard);
+        }
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.inventory = inventory;
+    }
+
+    public CartRepository(int maxCarts, long idleTimeout, TimeUnit unit) {
+        this(Runtime.getRuntime().availableProcessors() * 4, maxCarts, idleTimeout, unit, null);
+    }
+
+    // Shard locks are held only for lookup; cart work synchronizes on the cart alone
+    CartSession session(String sessionId) {
+        Shard shard = shardFor(sessionId);
+        long now = System.nanoTime();
+        shard.lock.lock();
+        try {
+            CartSession session = shard.get(sessionId);
+            if (session == null || now - session.lastAccessNanos > idleTimeoutNanos) {
+                if (session != null) {
+                    expire(sessionId, session);
+                }
+                session = new CartSession(inventory);
+                shard.put(sessionId, session);
+            }
+            session.lastAccessNanos = now;
+            return session;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // Runs action under the cart lock. Eviction can win the race between the lookup and the lock; the
+    // evicted cart has already released its stock and been logged as cleared, so the lookup is retried
+    // rather than letting the work land on a cart nobody can see.
+    private <T> T withCart(String sessionId, Function<Cart, T> action) {
+        while (true) {
+            CartSession session = session(sessionId);
+            synchronized (session.cart) {
+                if (!session.dead) {
+                    return action.apply(session.cart);
+                }
+            }
+        }
+    }
+
+    public void addProduct(String sessionId, Product product, int quantity) {
+        withCart(sessionId, cart -> {
+            cart.addProduct(product, quantity);
+            logLine(sessionId, cart, product);
+            return null;
+        });
+    }
+
+    public void updateQuantity(String sessionId, Product product, int newQuantity) {
+        withCart(sessionId, cart -> {
+            cart.updateQuantity(product, newQuantity);
+            logLine(sessionId, cart, product);
+            return null;
+        });
+    }
+
+    public void removeProduct(String sessionId, Product product) {
+        withCart(sessionId, cart -> {
+            cart.removeProduct(product);
+            logLine(sessionId, cart, product);
+            return null;
+        });
+    }
+
+    public double calculateTotal(String sessionId) {
+        return withCart(sessionId, Cart::calculateTotal);
+    }
+
+    public void viewCart(String sessionId) {
+        withCart(sessionId, cart -> {
+            cart.viewCart();
+            return null;
+        });
+    }
+
+    public void setDiscountStrategy(String sessionId, DiscountStrategy discountStrategy) {
+        withCart(sessionId, cart -> {
+            cart.setDiscountStrategy(discountStrategy);
+            CartWriteAheadLog log = this.log;
+            if (log != null) {
+                log.setDiscount(sessionId, discountStrategy);
+            }
+            return null;
+        });
+    }
+
+    void attachLog(CartWriteAheadLog log) {
+        this.log = log;
+    }
+
+    // Recovery entry points: apply logged state directly, without logging it again
+    void restoreLine(String sessionId, int sku, int quantity) {
+        Product product = ProductCatalog.get(sku);
+        withCart(sessionId, cart -> {
+            if (quantity == 0) {
+                cart.removeProduct(product);
+            } else if (cart.getQuantity(product) == 0) {
+                cart.addProduct(product, quantity);
+            } else {
+                cart.updateQuantity(product, quantity);
+            }
+            return null;
+        });
+    }
+
+    void restoreDiscount(String sessionId, DiscountStrategy discountStrategy) {
+        withCart(sessionId, cart -> {
+            cart.setDiscountStrategy(discountStrategy);
+            return null;
+        });
+    }
+
+    void restoreClear(String sessionId) {
+        Shard shard = shardFor(sessionId);
+        shard.lock.lock();
+        try {
+            CartSession session = shard.remove(sessionId);
+            if (session != null) {
+                expire(sessionId, session);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // Visits every resident cart while holding that cart's lock; shard locks are held only to copy keys
+    void forEachCart(BiConsumer<String, Cart> action) {
+        for (Shard shard : shards) {
+            List<Map.Entry<String, CartSession>> entries;
+            shard.lock.lock();
+            try {
+                entries = new ArrayList<>(shard.entrySet());
+            } finally {
+                shard.lock.unlock();
+            }
+            for (Map.Entry<String, CartSession> entry : entries) {
+                CartSession session = entry.getValue();
+                synchronized (session.cart) {
+                    if (!session.dead) {
+                        action.accept(entry.getKey(), session.cart);
+                    }
+                }
+            }
+        }
+    }
+
+    // Drops carts idle longer than the timeout; walks each shard from its LRU end only
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                Iterator<Map.Entry<String, CartSession>> it = shard.entrySet().iterator();
+                Map.Entry<String, CartSession> entry;
+                while (it.hasNext() && now - (entry = it.next()).getValue().lastAccessNanos > idleTimeoutNanos) {
+                    it.remove();
+                    expire(entry.getKey(), entry.getValue());
+                    shard.evictions++;
+                    evicted++;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long evictions() {
+        long evictions = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                evictions += shard.evictions;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return evictions;
+    }
+
+    // Expired carts hand their reserved stock back to the inventory and are logged as cleared
+    private void expire(String sessionId, CartSession session) {
+        synchronized (session.cart) {
+            session.dead = true;
+            session.cart.releaseReservations();
+            CartWriteAheadLog log = this.log;
+            if (log != null) {
+                log.clear(sessionId);
+            }
+        }
+    }
+
+    private void logLine(String sessionId, Cart cart, Product product) {
+        CartWriteAheadLog log = this.log;
+        if (log != null) {
+            log.setLine(sessionId, product.getSku(), cart.getQuantity(product));
+        }
+    }
+
+    private Shard shardFor(String sessionId) {
+        int h = sessionId.hashCode();
+        return shards[(h ^ (h >>> 16)) & (shards.length - 1)];
+    }
+}
+
+// Write-ahead log for CartRepository: every cart mutation is appended as a compact binary record to a
+// memory-mapped segment, fsynced in groups by a background flusher, and compacted into snapshots.
+//
+// Records carry absolute state (a line's new quantity, the cart's strategy, a cleared cart) rather than
+// deltas, so replaying a record that a snapshot already reflects is harmless. Recovery loads the snapshot,
+// then replays the rotated segment left by an interrupted compaction, then the live segment.
+class CartWriteAheadLog implements Closeable {
+    private static final byte OP_CATALOG = 1;
+    private static final byte OP_SET_LINE = 2;
+    private static final byte OP_SET_DISCOUNT = 3;
+    private static final byte OP_CLEAR = 4;
+
+    private static final byte STRATEGY_NONE = 0;
+    private static final byte STRATEGY_PERCENTAGE = 1;
+    private static final byte STRATEGY_BUY_ONE_GET_ONE = 2;
+
+    private static final int INITIAL_SEGMENT_BYTES = 16 << 20;
+
+    private final Path logFile;
+    private final Path rotatedLogFile;
+    private final Path snapshotFile;
+    private final CartRepository repository;
+    private final long compactThresholdBytes;
+    private final Thread flusher;
+    private final Object compacting = new Object();
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    // SKUs whose class name has been written to the current segment
+    private final BitSet describedSkus = new BitSet();
+    private final CRC32 crc = new CRC32();
+    // Log offset of the current segment's first byte; offsets keep growing across rotations, so a
+    // waiter's target stays meaningful after compaction starts a new segment
+    private long segmentBase;
+    // Bytes appended to the current segment
+    private long written;
+    // Log offset up to which everything has been fsynced
+    private long durable;
+    private boolean closed;
+
+    private CartWriteAheadLog(Path directory, CartRepository repository, long flushIntervalMillis, long compactThresholdBytes)
+            throws IOException {
+        this.logFile = directory.resolve("carts.wal");
+        this.rotatedLogFile = directory.resolve("carts.wal.1");
+        this.snapshotFile = directory.resolve("carts.snap");
+        this.repository = repository;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.flusher = new Thread(() -> flushLoop(flushIntervalMillis), "cart-wal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    // Replays any existing snapshot and log into the repository, compacts them, and starts logging
+    public static CartWriteAheadLog open(Path directory, CartRepository repository, long flushIntervalMillis,
+            long compactThresholdBytes) throws IOException {
+        Files.createDirectories(directory);
+        CartWriteAheadLog log = new CartWriteAheadLog(directory, repository, flushIntervalMillis, compactThresholdBytes);
+        log.recover();
+        // Recovered state is snapshotted before the old segments are discarded
+        log.writeSnapshot();
+        log.openSegment();
+        Files.deleteIfExists(log.rotatedLogFile);
+        repository.attachLog(log);
+        log.flusher.start();
+        return log;
+    }
+
+    public void setLine(String sessionId, int sku, int quantity) {
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            describe(sku);
+            ByteBuffer record = begin(OP_SET_LINE, 2 + session.length + 8);
+            record.putShort((short) session.length).put(session).putInt(sku).putInt(quantity);
+            commit(record);
+        }
+    }
+
+    public void setDiscount(String sessionId, DiscountStrategy strategy) {
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer record = begin(OP_SET_DISCOUNT, 2 + session.length + 9);
+            record.putShort((short) session.length).put(session);
+            putStrategy(record, strategy);
+            commit(record);
+        }
+    }
+
+    public void clear(String sessionId) {
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer record = begin(OP_CLEAR, 2 + session.length);
+            record.putShort((short) session.length).put(session);
+            commit(record);
+        }
+    }
+
+    // Blocks until everything appended so far has been fsynced by a group commit
+    public synchronized void awaitDurable() throws InterruptedException {
+        long target = segmentBase + written;
+        notifyAll();
+        while (durable < target && !closed) {
+            wait();
+        }
+    }
+
+    // Bytes in the live segment
+    public synchronized long size() {
+        return written;
+    }
+
+    // Rotates the live segment aside, snapshots every cart, then drops the rotated segment. A second
+    // rotation before the snapshot would overwrite the rotated segment, so compactions run one at a time.
+    public void compact() throws IOException {
+        synchronized (compacting) {
+            compactLocked();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            segment.force();
+            durable = segmentBase + written;
+            notifyAll();
+            channel.truncate(written);
+            channel.close();
+            Files.move(logFile, rotatedLogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            openSegment();
+        }
+        writeSnapshot();
+        Files.deleteIfExists(rotatedLogFile);
+    }
+
+    // Waits for a compaction in progress, so no snapshot is written after close returns
+    @Override
+    public void close() throws IOException {
+        synchronized (compacting) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                segment.force();
+                durable = segmentBase + written;
+                channel.truncate(written);
+                channel.close();
+                // Wakes the flusher, which then exits; it is not interrupted, since that would close the
+                // channel of a snapshot it may be writing
+                notifyAll();
+            }
+        }
+    }
+
+    private void flushLoop(long flushIntervalMillis) {
+        try {
+            while (true) {
+                long segmentBytes;
+                synchronized (this) {
+                    wait(flushIntervalMillis);
+                    if (closed) {
+                        return;
+                    }
+                    segmentBytes = written;
+                    if (durable < segmentBase + segmentBytes) {
+                        segment.force();
+                        durable = segmentBase + segmentBytes;
+                        notifyAll();
+                    }
+                }
+                if (segmentBytes > compactThresholdBytes) {
+                    compact();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Cart log flush failed: " + e.getMessage());
+        }
+    }
+
+    // Record layout: [length:int][crc32:int][op:byte][payload]; a zero length marks the end of the log
+    private ByteBuffer begin(byte op, int payloadBytes) {
+        int recordBytes = 8 + 1 + payloadBytes;
+        if (segment.remaining() < recordBytes + 4) {
+            growSegment(recordBytes + 4);
+        }
+        ByteBuffer record = segment.slice();
+        record.putInt(1 + payloadBytes).putInt(0).put(op);
+        return record;
+    }
+
+    private void commit(ByteBuffer record) {
+        int length = record.position();
+        crc.reset();
+        crc.update(record.duplicate().position(8).limit(length));
+        record.putInt(4, (int) crc.getValue());
+        segment.position(segment.position() + length);
+        written += length;
+    }
+
+    private void describe(int sku) {
+        if (describedSkus.get(sku)) {
+            return;
+        }
+        byte[] className = ProductCatalog.get(sku).getClass().getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = begin(OP_CATALOG, 4 + 2 + className.length);
+        record.putInt(sku).putShort((short) className.length).put(className);
+        commit(record);
+        describedSkus.set(sku);
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SEGMENT_BYTES);
+        describedSkus.clear();
+        // Only reached once the previous segment has been forced, so durable already covers it
+        segmentBase += written;
+        written = 0;
+    }
+
+    private void growSegment(int needed) {
+        try {
+            segment.force();
+            long capacity = Math.max((long) segment.capacity() * 2, written + needed);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            segment.position((int) written);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow cart log", e);
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16));
+            int maxSku = ProductCatalog.size();
+            data.writeInt(maxSku);
+            for (int sku = 1; sku <= maxSku; sku++) {
+                data.writeUTF(ProductCatalog.get(sku).getClass().getName());
+            }
+            int[] skus = new int[maxSku];
+            int[] quantities = new int[maxSku];
+            repository.forEachCart((sessionId, cart) -> {
+                try {
+                    int lines = cart.copyLines(skus, quantities, 0);
+                    data.writeBoolean(true);
+                    data.writeUTF(sessionId);
+                    ByteBuffer strategy = ByteBuffer.allocate(9);
+                    putStrategy(strategy, cart.getDiscountStrategy());
+                    data.write(strategy.array());
+                    data.writeShort(lines);
+                    for (int line = 0; line < lines; line++) {
+                        data.writeInt(skus[line]);
+                        data.writeInt(quantities[line]);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            data.writeBoolean(false);
+            data.flush();
+            out.force(true);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void recover() throws IOException {
+        if (Files.exists(snapshotFile)) {
+            readSnapshot();
+        }
+        if (Files.exists(rotatedLogFile)) {
+            replay(rotatedLogFile);
+        }
+        if (Files.exists(logFile)) {
+            replay(logFile);
+        }
+    }
+
+    private void readSnapshot() throws IOException {
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+            int maxSku = data.readInt();
+            int[] skuMap = new int[maxSku + 1];
+            for (int sku = 1; sku <= maxSku; sku++) {
+                skuMap[sku] = ProductCatalog.skuOf(data.readUTF());
+            }
+            byte[] strategy = new byte[9];
+            while (data.readBoolean()) {
+                String sessionId = data.readUTF();
+                data.readFully(strategy);
+                repository.restoreDiscount(sessionId, getStrategy(ByteBuffer.wrap(strategy)));
+                int lines = data.readShort();
+                for (int line = 0; line < lines; line++) {
+                    int sku = skuMap[data.readInt()];
+                    int quantity = data.readInt();
+                    if (sku != 0) {
+                        repository.restoreLine(sessionId, sku, quantity);
+                    }
+                }
+            }
+        }
+    }
+
+    // Stops at the first zero length or checksum mismatch, i.e. at the end of the last complete record
+    private void replay(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer log = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            int[] skuMap = new int[ProductCatalog.size() + 1];
+            CRC32 check = new CRC32();
+            while (log.remaining() >= 8) {
+                int length = log.getInt();
+                int checksum = log.getInt();
+                if (length <= 0 || length > log.remaining()) {
+                    break;
+                }
+                ByteBuffer record = log.slice().limit(length);
+                check.reset();
+                check.update(record.duplicate());
+                if ((int) check.getValue() != checksum) {
+                    break;
+                }
+                log.position(log.position() + length);
+                byte op = record.get();
+                if (op == OP_CATALOG) {
+                    int loggedSku = record.getInt();
+                    if (loggedSku >= skuMap.length) {
+                        skuMap = Arrays.copyOf(skuMap, loggedSku + 1);
+                    }
+                    skuMap[loggedSku] = ProductCatalog.skuOf(getString(record));
+                    continue;
+                }
+                String sessionId = getString(record);
+                if (op == OP_SET_LINE) {
+                    int loggedSku = record.getInt();
+                    int quantity = record.getInt();
+                    int sku = loggedSku < skuMap.length ? skuMap[loggedSku] : 0;
+                    if (sku != 0) {
+                        repository.restoreLine(sessionId, sku, quantity);
+                    }
+                } else if (op == OP_SET_DISCOUNT) {
+                    repository.restoreDiscount(sessionId, getStrategy(record));
+                } else if (op == OP_CLEAR) {
+                    repository.restoreClear(sessionId);
+                }
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putStrategy(ByteBuffer buffer, DiscountStrategy strategy) {
+        if (strategy == null) {
+            buffer.put(STRATEGY_NONE).putDouble(0);
+        } else if (strategy instanceof PercentageDiscountStrategy) {
+            buffer.put(STRATEGY_PERCENTAGE).putDouble(((PercentageDiscountStrategy) strategy).getPercentage());
+        } else if (strategy instanceof BuyOneGetOneFreeStrategy) {
+            buffer.put(STRATEGY_BUY_ONE_GET_ONE).putDouble(0);
         } else {
-            Map<String, Integer> productSummary = new LinkedHashMap<>();
-            for (Map.Entry<Product, Integer> entry : items.entrySet()) {
-                String productName = entry.getKey().getName();
-                int quantity = entry.getValue();
-                productSummary.put(productName, productSummary.getOrDefault(productName, 0) + quantity);
+            throw new IllegalArgumentException("Cannot log discount strategy " + strategy.getClass().getName());
+        }
+    }
+
+    private static DiscountStrategy getStrategy(ByteBuffer buffer) {
+        byte type = buffer.get();
+        double percentage = buffer.getDouble();
+        switch (type) {
+            case STRATEGY_PERCENTAGE: return new PercentageDiscountStrategy(percentage);
+            case STRATEGY_BUY_ONE_GET_ONE: return new BuyOneGetOneFreeStrategy();
+            default: return null;
+        }
+    }
+}
+
+// Recovery-time measurement: java Main wal-recovery [carts] [directory]
+class CartRecoveryBenchmark {
+    static void run(int carts, Path directory) throws IOException, InterruptedException {
+        Product laptop = new Laptop(1000, true);
+        Product headphones = new Headphones(50, true);
+        DiscountStrategy discount = new PercentageDiscountStrategy(10);
+        long compactNever = Long.MAX_VALUE;
+
+        CartRepository repository = new CartRepository(carts * 2, 1, TimeUnit.DAYS);
+        try (CartWriteAheadLog log = CartWriteAheadLog.open(directory, repository, 5, compactNever)) {
+            for (int i = 0; i < carts; i++) {
+                String sessionId = "session-" + i;
+                repository.addProduct(sessionId, laptop, 1 + (i & 3));
+                repository.addProduct(sessionId, headphones, 2);
+                if ((i & 7) == 0) {
+                    repository.setDiscountStrategy(sessionId, discount);
+                }
+            }
+            log.awaitDurable();
+            System.out.printf("Logged %,d carts: %,d bytes of log%n", carts, log.size());
+        }
+
+        // The recovering open replays the whole log and compacts it into a snapshot
+        long begin = System.nanoTime();
+        CartRepository recovered = new CartRepository(carts * 2, 1, TimeUnit.DAYS);
+        CartWriteAheadLog recoveredLog = CartWriteAheadLog.open(directory, recovered, 5, compactNever);
+        try {
+            System.out.printf("Recovered %,d carts from log in %d ms%n", recovered.size(), (System.nanoTime() - begin) / 1_000_000);
+        } finally {
+            recoveredLog.close();
+        }
+
+        begin = System.nanoTime();
+        CartRepository fromSnapshot = new CartRepository(carts * 2, 1, TimeUnit.DAYS);
+        CartWriteAheadLog snapshotLog = CartWriteAheadLog.open(directory, fromSnapshot, 5, compactNever);
+        try {
+            System.out.printf("Recovered %,d carts from snapshot in %d ms, snapshot %,d bytes%n", fromSnapshot.size(),
+                    (System.nanoTime() - begin) / 1_000_000, Files.size(directory.resolve("carts.snap")));
+        } finally {
+            snapshotLog.close();
+        }
+        for (int i = 0; i < carts; i += Math.max(1, carts / 1000)) {
+            String sessionId = "session-" + i;
+            if (Double.compare(repository.calculateTotal(sessionId), fromSnapshot.calculateTotal(sessionId)) != 0) {
+                throw new IllegalStateException("Recovered total differs for " + sessionId);
+            }
+        }
+    }
+}
+
+// Multi-threaded stress run over CartRepository: java Main stress [sessions] [opsPerThread]
+class CartRepositoryStress {
+    static void run(int sessions, int opsPerThread) throws InterruptedException {
+        Product laptop = new Laptop(1000, true);
+        Product headphones = new Headphones(50, true);
+        String[] sessionIds = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            sessionIds[i] = "session-" + i;
+        }
+
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+        System.out.println("Sessions: " + sessions + ", ops per thread: " + opsPerThread);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            CartRepository repository = new CartRepository(sessions, 30, TimeUnit.MINUTES);
+            long[][] latencies = new long[threads][opsPerThread];
+            Thread[] workers = new Thread[threads];
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < threads; t++) {
+                long[] samples = latencies[t];
+                int seed = t;
+                workers[t] = new Thread(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < samples.length; i++) {
+                        String sessionId = sessionIds[random.nextInt(sessionIds.length)];
+                        long begin = System.nanoTime();
+                        if ((i & 3) == 3) {
+                            repository.calculateTotal(sessionId);
+                        } else {
+                            repository.addProduct(sessionId, (i & 1) == 0 ? laptop : headphones, 1);
+                        }
+                        samples[i] = System.nanoTime() - begin;
+                    }
+                });
+                workers[t].start();
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            long[] all = new long[threads * opsPerThread];
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(latencies[t], 0, all, t * opsPerThread, opsPerThread);
             }
+            Arrays.sort(all);
+            double throughput = all.length * 1e9 / elapsed;
+            System.out.printf("Threads: %2d, throughput: %,.0f ops/s, p50: %d ns, p99: %d ns%n",
+                    threads, throughput, all[all.length / 2], all[(int) (all.length * 0.99)]);
+        }
+    }
+}
+
+// Reservation contention benchmark: java Main inventory-bench [opsPerThread]
+class InventoryContention {
+    static void run(int opsPerThread) throws InterruptedException {
+        Product laptop = new Laptop(1000, true);
+        Product headphones = new Headphones(50, true);
+        int[] skus = { laptop.getSku(), headphones.getSku() };
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            Inventory inventory = new Inventory();
+            inventory.setStock(laptop, 1_000_000);
+            inventory.setStock(headphones, 1_000_000);
+            long elapsed = runThreads(threads, () -> {
+                SplittableRandom random = new SplittableRandom();
+                for (int i = 0; i < opsPerThread; i++) {
+                    int sku = skus[random.nextInt(skus.length)];
+                    if (inventory.tryReserve(sku, 1)) {
+                        inventory.release(sku, 1);
+                    }
+                }
+            });
+            System.out.printf("Threads: %2d, reserve+release: %,.0f ops/s%n", threads, threads * (double) opsPerThread * 1e9 / elapsed);
+        }
 
-            StringBuilder cartItems = new StringBuilder("You have ");
-            for (Map.Entry<String, Integer> entry : productSummary.entrySet()) {
-                cartItems.append(entry.getValue()).append(" ").append(entry.getKey()).append("(s) and ");
+        // Oversell check: every thread competes for the last units until stock runs out
+        int stock = 100_000;
+        Inventory inventory = new Inventory();
+        inventory.setStock(laptop, stock);
+        AtomicInteger sold = new AtomicInteger();
+        runThreads(maxThreads, () -> {
+            while (inventory.tryReserve(laptop.getSku(), 1)) {
+                sold.incrementAndGet();
             }
-            // Remove the last " and "
-            if (cartItems.length() > 0) {
-                cartItems.setLength(cartItems.length() - 5);
+        });
+        if (sold.get() != stock || inventory.getStock(laptop) != 0) {
+            throw new IllegalStateException("Oversold: sold " + sold.get() + " of " + stock + ", remaining " + inventory.getStock(laptop));
+        }
+        System.out.println("Sold exactly " + sold.get() + " of " + stock + " units across " + maxThreads + " threads.");
+    }
+
+    private static long runThreads(int threads, Runnable work) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(work);
+        }
+        long begin = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
+
+// Benchmark harness for the cart hot paths: java Main bench [maxThreads]
+// Reports ns/op, aggregate throughput and bytes allocated per op for each thread count. Cart operations
+// run on a cart holding one line per catalog SKU; a cart never has more lines than the catalog has
+// SKUs, and the catalog has one per Product class, so there is no larger cart to measure.
+class CartBenchmark {
+    private static final int WARMUP_OPS = 200_000;
+    private static final int MEASURED_OPS = 1_000_000;
+    private static volatile double sink;
+
+    static void run(int maxThreads) throws InterruptedException {
+        Product laptop = new Laptop(1000, true);
+        Product headphones = new Headphones(50, true);
+        DiscountStrategy percentage = new PercentageDiscountStrategy(10);
+        DiscountStrategy buyOneGetOne = new BuyOneGetOneFreeStrategy();
+        PrintStream console = System.out;
+        // viewCart prints; discard its output while measuring
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+        console.printf("%-30s %7s %12s %16s %10s%n", "Benchmark", "Threads", "ns/op", "ops/s", "B/op");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            measure(console, "Product.clone", threads, () -> i -> sink += laptop.clone().getPrice());
+            measure(console, "Percentage.applyDiscount", threads, () -> i -> sink += percentage.applyDiscount(i));
+            measure(console, "BuyOneGetOne.lineCents", threads, () -> i -> sink += buyOneGetOne.lineCents(100_000, i));
+            measure(console, "Cart.addProduct", threads, () -> {
+                Cart cart = filledCart(laptop, headphones);
+                return i -> cart.addProduct((i & 1) == 0 ? laptop : headphones, 1);
+            });
+            measure(console, "Cart.updateQuantity", threads, () -> {
+                Cart cart = filledCart(laptop, headphones);
+                return i -> cart.updateQuantity((i & 1) == 0 ? laptop : headphones, 1 + (i & 7));
+            });
+            measure(console, "Cart.calculateTotal", threads, () -> {
+                Cart cart = filledCart(laptop, headphones);
+                cart.setDiscountStrategy(percentage);
+                return i -> sink += cart.calculateTotal();
+            });
+            measure(console, "Cart.calculateTotal+update", threads, () -> {
+                Cart cart = filledCart(laptop, headphones);
+                cart.setDiscountStrategy(percentage);
+                return i -> {
+                    cart.updateQuantity(laptop, 1 + (i & 7));
+                    sink += cart.calculateTotal();
+                };
+            });
+            System.setOut(discard);
+            try {
+                measure(console, "Cart.viewCart", threads, () -> {
+                    Cart cart = filledCart(laptop, headphones);
+                    return i -> cart.viewCart();
+                });
+            } finally {
+                System.setOut(console);
             }
-            System.out.println(cartItems.toString() + " in your cart.");
+            measure(console, "Cart.writeSummary(Appendable)", threads, () -> {
+                Cart cart = filledCart(laptop, headphones);
+                StringBuilder summary = new StringBuilder(128);
+                return i -> {
+                    summary.setLength(0);
+                    try {
+                        cart.writeSummary(summary);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    sink += summary.length();
+                };
+            });
+            measure(console, "Cart.writeSummary(ByteBuffer)", threads, () -> {
+                Cart cart = filledCart(laptop, headphones);
+                ByteBuffer summary = ByteBuffer.allocateDirect(128);
+                return i -> {
+                    summary.clear();
+                    cart.writeSummary(summary);
+                    sink += summary.position();
+                };
+            });
+            measure(console, "Cart.lines", threads, () -> {
+                Cart cart = filledCart(laptop, headphones);
+                Cart.LineCursor lines = cart.lines();
+                return i -> {
+                    lines.reset();
+                    while (lines.next()) {
+                        sink += lines.quantity();
+                    }
+                };
+            });
         }
     }
+
+    private static Cart filledCart(Product laptop, Product headphones) {
+        Cart cart = new Cart();
+        cart.addProduct(laptop, 1);
+        cart.addProduct(headphones, 1);
+        return cart;
+    }
+
+    // Each thread gets its own operation (and cart) from the factory, so threads never share state
+    private static void measure(PrintStream out, String name, int threads, Supplier<IntConsumer> factory)
+            throws InterruptedException {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[threads];
+        long[] bytes = new long[threads];
+        Thread[] workers = new Thread[threads];
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                IntConsumer op = factory.get();
+                for (int i = 0; i < WARMUP_OPS; i++) {
+                    op.accept(i);
+                }
+                try {
+                    barrier.await();
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+                long begin = System.nanoTime();
+                for (int i = 0; i < MEASURED_OPS; i++) {
+                    op.accept(i);
+                }
+                nanos[index] = System.nanoTime() - begin;
+                bytes[index] = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long slowest = 0;
+        for (int t = 0; t < threads; t++) {
+            totalNanos += nanos[t];
+            totalBytes += bytes[t];
+            slowest = Math.max(slowest, nanos[t]);
+        }
+        long ops = (long) threads * MEASURED_OPS;
+        out.printf("%-30s %7d %12.1f %,16.0f %10.1f%n",
+                name, threads, (double) totalNanos / ops, ops * 1e9 / slowest, (double) totalBytes / ops);
+    }
+}
+
+// Randomized check that the cached, incrementally maintained total matches a full rescan
+class CartTotalCheck {
+    static void run(int operations, long seed) {
+        Product[] products = { new Laptop(1000, true), new Headphones(50, true) };
+        DiscountStrategy[] strategies = {
+            null, new PercentageDiscountStrategy(10), new PercentageDiscountStrategy(33.3), new BuyOneGetOneFreeStrategy()
+        };
+        SplittableRandom random = new SplittableRandom(seed);
+        Cart cart = new Cart();
+        for (int i = 0; i < operations; i++) {
+            Product product = products[random.nextInt(products.length)];
+            switch (random.nextInt(4)) {
+                case 0: cart.addProduct(product, 1 + random.nextInt(5)); break;
+                case 1: cart.updateQuantity(product, random.nextInt(10)); break;
+                case 2: cart.removeProduct(product); break;
+                default: cart.setDiscountStrategy(strategies[random.nextInt(strategies.length)]);
+            }
+            double cached = cart.calculateTotal();
+            double expected = cart.recalculateTotal();
+            if (Double.compare(cached, expected) != 0) {
+                throw new IllegalStateException("Total mismatch after operation " + i + ": " + cached + " != " + expected);
+            }
+        }
+        System.out.println("Totals matched a full recompute across " + operations + " operations.");
+
+        List<Cart> carts = new ArrayList<>();
+        for (int c = 0; c < 10_000; c++) {
+            Cart batchCart = new Cart();
+            for (Product product : products) {
+                if (random.nextBoolean()) {
+                    batchCart.addProduct(product, 1 + random.nextInt(9));
+                }
+            }
+            carts.add(batchCart);
+        }
+        BatchPricingEngine engine = new BatchPricingEngine(carts);
+        for (DiscountStrategy strategy : strategies) {
+            double[] sequential = engine.reprice(strategy);
+            double[] parallel = engine.repriceParallel(strategy);
+            for (int c = 0; c < carts.size(); c++) {
+                carts.get(c).setDiscountStrategy(strategy);
+                double expected = carts.get(c).calculateTotal();
+                if (Double.compare(sequential[c], expected) != 0 || Double.compare(parallel[c], expected) != 0) {
+                    throw new IllegalStateException("Batch total mismatch for cart " + c + ": " + sequential[c] + " / " + parallel[c] + " != " + expected);
+                }
+            }
+        }
+        System.out.println("Batch pricing matched per-cart totals for " + carts.size() + " carts.");
+    }
 }
 
 // Main Class
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length > 0 && args[0].equals("stress")) {
+            int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+            int opsPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+            CartRepositoryStress.run(sessions, opsPerThread);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("inventory-bench")) {
+            InventoryContention.run(args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("wal-recovery")) {
+            int carts = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+            Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("cart-wal");
+            CartRecoveryBenchmark.run(carts, directory);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            CartBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+            return;
+        }
+        if (args.length > 0 && args[0].equals("check-totals")) {
+            CartTotalCheck.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000, 42);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         // Create products
         Product laptop = new Laptop(1000, true);
         Product headphones = new Headphones(50, true);
-        Cart cart = new Cart();
+        Inventory inventory = new Inventory();
+        inventory.setStock(laptop, 10);
+        inventory.setStock(headphones, 100);
+        // The console cart survives restarts through the cart log; -Dcart.dir picks the data directory.
+        // It is the repository's only cart and never expires; recovery re-reserves its stock.
+        String sessionId = "console";
+        CartRepository carts = new CartRepository(1, 1, Long.MAX_VALUE, TimeUnit.NANOSECONDS, inventory);
+        CartWriteAheadLog log = CartWriteAheadLog.open(Paths.get(System.getProperty("cart.dir", "cart-data")), carts, 50, 64 << 20);
 
         while (true) {
             System.out.println("\nAvailable commands:");
@@ -161,9 +1775,9 @@ public class Main {
                     scanner.nextLine(); 
 
                     if (addProductName.equalsIgnoreCase("Laptop")) {
-                        cart.addProduct(laptop, addQuantity);
+                        carts.addProduct(sessionId, laptop, addQuantity);
                     } else if (addProductName.equalsIgnoreCase("Headphones")) {
-                        cart.addProduct(headphones, addQuantity);
+                        carts.addProduct(sessionId, headphones, addQuantity);
                     } else {
                         System.out.println("Invalid product name.");
                     }
@@ -177,9 +1791,9 @@ public class Main {
                     scanner.nextLine(); 
 
                     if (updateProductName.equalsIgnoreCase("Laptop")) {
-                        cart.updateQuantity(laptop, updateQuantity);
+                        carts.updateQuantity(sessionId, laptop, updateQuantity);
                     } else if (updateProductName.equalsIgnoreCase("Headphones")) {
-                        cart.updateQuantity(headphones, updateQuantity);
+                        carts.updateQuantity(sessionId, headphones, updateQuantity);
                     } else {
                         System.out.println("Invalid product name.");
                     }
@@ -190,9 +1804,9 @@ public class Main {
                     String removeProductName = scanner.nextLine();
 
                     if (removeProductName.equalsIgnoreCase("Laptop")) {
-                        cart.removeProduct(laptop);
+                        carts.removeProduct(sessionId, laptop);
                     } else if (removeProductName.equalsIgnoreCase("Headphones")) {
-                        cart.removeProduct(headphones);
+                        carts.removeProduct(sessionId, headphones);
                     } else {
                         System.out.println("Invalid product name.");
                     }
@@ -200,11 +1814,11 @@ public class Main {
 
                 case 4:
                     System.out.println("Cart Items:");
-                    cart.viewCart();
+                    carts.viewCart(sessionId);
                     break;
 
                 case 5:
-                    System.out.println("Total Bill: $" + cart.calculateTotal());
+                    System.out.println("Total Bill: $" + carts.calculateTotal(sessionId));
                     break;
 
                 case 6:
@@ -219,9 +1833,9 @@ public class Main {
                         System.out.print("Enter discount percentage: ");
                         double percentage = scanner.nextDouble();
                         scanner.nextLine();  
-                        cart.setDiscountStrategy(new PercentageDiscountStrategy(percentage));
+                        carts.setDiscountStrategy(sessionId, new PercentageDiscountStrategy(percentage));
                     } else if (strategy == 2) {
-                        cart.setDiscountStrategy(new BuyOneGetOneFreeStrategy());
+                        carts.setDiscountStrategy(sessionId, new BuyOneGetOneFreeStrategy());
                     } else {
                         System.out.println("Invalid strategy.");
                     }
@@ -229,6 +1843,7 @@ public class Main {
 
                 case 7:
                     System.out.println("Exiting...");
+                    log.close();
                     scanner.close();
                     return;
 
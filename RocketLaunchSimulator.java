@@ -1,16 +1,112 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
 
 class Rocket {
+    static final double STAGE_1_BURN = 1.0;
+    static final double STAGE_1_CLIMB = 10.0;
+    static final double STAGE_1_ACCELERATION = 1000.0;
+    static final double STAGE_2_BURN = 0.5;
+    static final double STAGE_2_CLIMB = 5.0;
+    static final double STAGE_2_ACCELERATION = 500.0;
+    static final double STAGE_2_FUEL_THRESHOLD = 50.0;
+    static final double ORBIT_ALTITUDE = 100.0;
+    static final double INITIAL_FUEL = 100.0;
+    // Stage code, failed stage, mission time, fuel, altitude, speed and the eight profile values
+    static final int SNAPSHOT_BYTES = 1 + 4 + 8 + 11 * 8;
+
     private String stage;
     private double fuel;
     private double altitude;
     private double speed;
+    // Seconds simulated since launch, and the stage (1 or 2) a fuel failure happened in, else 0
+    private long missionTime;
+    private int failedStage;
+    // Silent rockets print no transition messages, which batch runs need to stay allocation-free
+    private boolean silent;
+    // Receives the sampled seconds and every stage change; null drops them
+    private RocketTelemetrySink telemetry = new ConsoleTelemetry(1);
+
+    // Mission profile
+    private double stage1Burn;
+    private double stage1Climb;
+    private double stage1Acceleration;
+    private double stage2Burn;
+    private double stage2Climb;
+    private double stage2Acceleration;
+    private double stage2FuelThreshold;
+    private double orbitAltitude;
 
     public Rocket() {
+        configure(INITIAL_FUEL, STAGE_1_BURN, STAGE_1_CLIMB, STAGE_1_ACCELERATION,
+                STAGE_2_BURN, STAGE_2_CLIMB, STAGE_2_ACCELERATION, STAGE_2_FUEL_THRESHOLD, ORBIT_ALTITUDE);
+    }
+
+    // Resets the rocket to Pre-Launch with the given profile, so one instance can fly many variants.
+    // fastForward matches updateStepwise exactly only while the rates are exact binary fractions.
+    // Burn and climb rates must be positive: fastForward solves for the next event by dividing by them.
+    public void configure(double initialFuel, double stage1Burn, double stage1Climb, double stage1Acceleration,
+            double stage2Burn, double stage2Climb, double stage2Acceleration, double stage2FuelThreshold, double orbitAltitude) {
+        if (!(stage1Burn > 0 && stage1Climb > 0 && stage2Burn > 0 && stage2Climb > 0)) {
+            throw new IllegalArgumentException("Burn and climb rates must be positive: stage 1 burn " + stage1Burn
+                    + ", climb " + stage1Climb + "; stage 2 burn " + stage2Burn + ", climb " + stage2Climb);
+        }
         this.stage = "Pre-Launch";
-        this.fuel = 100.0;
+        this.fuel = initialFuel;
         this.altitude = 0.0;
         this.speed = 0.0;
+        this.missionTime = 0;
+        this.failedStage = 0;
+        this.stage1Burn = stage1Burn;
+        this.stage1Climb = stage1Climb;
+        this.stage1Acceleration = stage1Acceleration;
+        this.stage2Burn = stage2Burn;
+        this.stage2Climb = stage2Climb;
+        this.stage2Acceleration = stage2Acceleration;
+        this.stage2FuelThreshold = stage2FuelThreshold;
+        this.orbitAltitude = orbitAltitude;
+    }
+
+    // Going silent also detaches the telemetry sink; a sink attached afterwards records the silent run
+    public void setSilent(boolean silent) {
+        this.silent = silent;
+        if (silent) {
+            this.telemetry = null;
+        }
+    }
+
+    public void setTelemetry(RocketTelemetrySink telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public long getMissionTime() {
+        return missionTime;
+    }
+
+    public int getFailedStage() {
+        return failedStage;
     }
 
     public String getStage() {
@@ -29,6 +125,48 @@ class Rocket {
         return speed;
     }
 
+    // For what-if branches, e.g. a fuel leak at the fork point
+    public void setFuel(double fuel) {
+        this.fuel = fuel;
+    }
+
+    // Writes the flight state and profile at the buffer's position. Telemetry and silence are not
+    // part of a snapshot, so a restored rocket keeps its own.
+    public void writeSnapshot(ByteBuffer out) {
+        out.put(stageCode()).putInt(failedStage).putLong(missionTime)
+                .putDouble(fuel).putDouble(altitude).putDouble(speed)
+                .putDouble(stage1Burn).putDouble(stage1Climb).putDouble(stage1Acceleration)
+                .putDouble(stage2Burn).putDouble(stage2Climb).putDouble(stage2Acceleration)
+                .putDouble(stage2FuelThreshold).putDouble(orbitAltitude);
+    }
+
+    public void readSnapshot(ByteBuffer in) {
+        stage = RocketPopulation.stageName(in.get());
+        failedStage = in.getInt();
+        missionTime = in.getLong();
+        fuel = in.getDouble();
+        altitude = in.getDouble();
+        speed = in.getDouble();
+        stage1Burn = in.getDouble();
+        stage1Climb = in.getDouble();
+        stage1Acceleration = in.getDouble();
+        stage2Burn = in.getDouble();
+        stage2Climb = in.getDouble();
+        stage2Acceleration = in.getDouble();
+        stage2FuelThreshold = in.getDouble();
+        orbitAltitude = in.getDouble();
+    }
+
+    private byte stageCode() {
+        switch (stage) {
+            case "Pre-Launch": return RocketPopulation.PRE_LAUNCH;
+            case "Stage 1": return RocketPopulation.STAGE_1;
+            case "Stage 2": return RocketPopulation.STAGE_2;
+            case "Orbit Achieved": return RocketPopulation.ORBIT_ACHIEVED;
+            default: return RocketPopulation.MISSION_FAILED;
+        }
+    }
+
     public void startChecks() {
         System.out.println("All systems are 'Go' for launch.");
     }
@@ -38,42 +176,182 @@ class Rocket {
     }
 
     public void update(int seconds) {
-    for (int i = 0; i < seconds; i++) {
-        if (fuel <= 0) {
-            System.out.println("Mission Failed due to insufficient fuel.");
-            stage = "Mission Failed";
-            return;
+        fastForward(seconds);
+    }
+
+    // Event-driven update: jumps straight to the next stage transition, orbit or fuel exhaustion and
+    // computes fuel, altitude and speed in closed form. The per-stage increments are exact binary
+    // fractions, so the result matches updateStepwise bit for bit. The sink picks which seconds are
+    // materialized (see RocketTelemetrySink.sampleEvery); stage changes always reach it.
+    public void fastForward(long seconds) {
+        long remaining = seconds;
+        while (remaining > 0) {
+            if (fuel <= 0) {
+                fail();
+                return;
+            }
+            if ("Stage 1".equals(stage)) {
+                // Stage 1 ends on the first second that leaves fuel at or below the stage 2 threshold;
+                // if that threshold is negative, running dry ends the run first
+                long steps = Math.min(remaining, Math.min(
+                        stepsUntilAtMost(fuel, stage1Burn, stage2FuelThreshold),
+                        stepsUntilAtMost(fuel, stage1Burn, 0.0)));
+                advance(steps, RocketPopulation.STAGE_1, stage1Burn, stage1Climb, stage1Acceleration);
+                remaining -= steps;
+                if (fuel <= stage2FuelThreshold) {
+                    separate();
+                }
+            } else if ("Stage 2".equals(stage)) {
+                long steps = Math.min(remaining, Math.min(
+                        stepsUntilAtLeast(altitude, stage2Climb, orbitAltitude),
+                        stepsUntilAtMost(fuel, stage2Burn, 0.0)));
+                advance(steps, RocketPopulation.STAGE_2, stage2Burn, stage2Climb, stage2Acceleration);
+                remaining -= steps;
+                if (altitude >= orbitAltitude) {
+                    reachOrbit();
+                    return;
+                }
+            } else {
+                return; // Nothing changes before launch or after orbit, and fuel was checked above
+            }
         }
-        if ("Stage 1".equals(stage)) {
-            fuel -= 1.0;
-            altitude += 10.0;
-            speed += 1000.0;
-            System.out.println("Stage: 1, Fuel: " + fuel + "%, Altitude: " + altitude + " km, Speed: " + speed + " km/h");
-            if (fuel <= 50.0) {
-                stage = "Stage 2";
-                System.out.println("Stage 1 complete. Separating stage. Entering Stage 2.");
-            }
-        } else if ("Stage 2".equals(stage)) {
-            fuel -= 0.5;
-            altitude += 5.0;
-            speed += 500.0;
-            System.out.println("Stage: 2, Fuel: " + fuel + "%, Altitude: " + altitude + " km, Speed: " + speed + " km/h");
-            if (altitude >= 100.0) {
-                stage = "Orbit Achieved";
-                System.out.println("Orbit achieved! Mission Successful.");
+    }
+
+    // Reference implementation: one loop iteration per simulated second
+    public void updateStepwise(int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            if (fuel <= 0) {
+                fail();
                 return;
             }
+            if ("Stage 1".equals(stage)) {
+                fuel -= stage1Burn;
+                altitude += stage1Climb;
+                speed += stage1Acceleration;
+                missionTime++;
+                emit(RocketPopulation.STAGE_1);
+                if (fuel <= stage2FuelThreshold) {
+                    separate();
+                }
+            } else if ("Stage 2".equals(stage)) {
+                fuel -= stage2Burn;
+                altitude += stage2Climb;
+                speed += stage2Acceleration;
+                missionTime++;
+                emit(RocketPopulation.STAGE_2);
+                if (altitude >= orbitAltitude) {
+                    reachOrbit();
+                    return;
+                }
+            }
         }
     }
-}
+
+    private void separate() {
+        stage = "Stage 2";
+        emit(RocketPopulation.STAGE_2);
+        if (!silent) {
+            System.out.println("Stage 1 complete. Separating stage. Entering Stage 2.");
+        }
+    }
+
+    private void fail() {
+        // A failed rocket fails again on every later update; keep the stage it first failed in
+        if ("Stage 1".equals(stage) || "Stage 2".equals(stage)) {
+            failedStage = "Stage 1".equals(stage) ? 1 : 2;
+        }
+        if (!"Mission Failed".equals(stage)) {
+            stage = "Mission Failed";
+            emit(RocketPopulation.MISSION_FAILED);
+        }
+        if (!silent) {
+            System.out.println("Mission Failed due to insufficient fuel.");
+        }
+    }
+
+    private void reachOrbit() {
+        stage = "Orbit Achieved";
+        emit(RocketPopulation.ORBIT_ACHIEVED);
+        if (!silent) {
+            System.out.println("Orbit achieved! Mission Successful.");
+        }
+    }
+
+    // Applies steps seconds of one stage, reporting only the seconds the sink samples
+    private void advance(long steps, byte stageCode, double burn, double climb, double acceleration) {
+        long sampleEvery = telemetry == null ? 0 : telemetry.sampleEvery();
+        if (sampleEvery <= 0) {
+            missionTime += steps;
+            fuel -= steps * burn;
+            altitude += steps * climb;
+            speed += steps * acceleration;
+            return;
+        }
+        long startTime = missionTime;
+        double startFuel = fuel;
+        double startAltitude = altitude;
+        double startSpeed = speed;
+        for (long step = sampleEvery - startTime % sampleEvery; step <= steps; step += sampleEvery) {
+            missionTime = startTime + step;
+            fuel = startFuel - step * burn;
+            altitude = startAltitude + step * climb;
+            speed = startSpeed + step * acceleration;
+            emit(stageCode);
+        }
+        missionTime = startTime + steps;
+        fuel = startFuel - steps * burn;
+        altitude = startAltitude + steps * climb;
+        speed = startSpeed + steps * acceleration;
+    }
+
+    private void emit(byte stageCode) {
+        if (telemetry != null) {
+            telemetry.record(missionTime, stageCode, fuel, altitude, speed);
+        }
+    }
+
+    // Smallest k >= 1 with start - k * rate <= limit
+    private static long stepsUntilAtMost(double start, double rate, double limit) {
+        long k = Math.max(1, (long) Math.ceil((start - limit) / rate));
+        while (k > 1 && start - (k - 1) * rate <= limit) {
+            k--;
+        }
+        while (start - k * rate > limit) {
+            k++;
+        }
+        return k;
+    }
+
+    // Smallest k >= 1 with start + k * rate >= limit
+    private static long stepsUntilAtLeast(double start, double rate, double limit) {
+        long k = Math.max(1, (long) Math.ceil((limit - start) / rate));
+        while (k > 1 && start + (k - 1) * rate >= limit) {
+            k--;
+        }
+        while (start + k * rate < limit) {
+            k++;
+        }
+        return k;
+    }
 }
 
 class RocketLaunchSimulator {
+    // Pre-launch checks flag followed by the rocket
+    static final int SNAPSHOT_BYTES = 1 + Rocket.SNAPSHOT_BYTES;
+
     private Rocket rocket;
     private boolean preLaunchChecksCompleted;
+    // Console output is one optional sink; its sampling does not limit the recorder
+    private final ConsoleTelemetry console = new ConsoleTelemetry(1);
+    private RocketTelemetryRecorder recorder;
+    // Every state-changing command in order, so a session can be replayed from a fresh simulator
+    private final List<String> commandLog = new ArrayList<>();
+    private final Map<String, byte[]> snapshots = new HashMap<>();
+    private static final Set<String> LOGGED_COMMANDS = Set.of("start_checks", "launch", "fast_forward", "snapshot", "restore");
 
     public RocketLaunchSimulator() {
         this.rocket = new Rocket();
+        this.rocket.setTelemetry(console);
         this.preLaunchChecksCompleted = false;
     }
 
@@ -90,43 +368,946 @@ class RocketLaunchSimulator {
         }
     }
 
-    public void fastForward(int seconds) {
-        rocket.update(seconds);
+    // printEvery samples the console only: 1 prints every second, N every Nth, 0 none
+    public void fastForward(long seconds, int printEvery) {
+        console.setPrintEvery(printEvery);
+        rocket.fastForward(seconds);
+        if (recorder != null) {
+            recorder.flush();
+        }
+    }
+
+    public void writeSnapshot(ByteBuffer out) {
+        out.put((byte) (preLaunchChecksCompleted ? 1 : 0));
+        rocket.writeSnapshot(out);
+    }
+
+    public void readSnapshot(ByteBuffer in) {
+        preLaunchChecksCompleted = in.get() != 0;
+        rocket.readSnapshot(in);
+        console.rewind();
+    }
+
+    public byte[] snapshot() {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BYTES);
+        writeSnapshot(buffer);
+        return buffer.array();
+    }
+
+    public void restore(byte[] snapshot) {
+        readSnapshot(ByteBuffer.wrap(snapshot));
+    }
+
+    public List<String> getCommandLog() {
+        return commandLog;
+    }
+
+    // Runs a command log against a fresh simulator. Commands carry all their inputs, so the result is
+    // the same state, byte for byte, as the session that produced the log.
+    public static RocketLaunchSimulator replay(List<String> commands) {
+        RocketLaunchSimulator simulator = new RocketLaunchSimulator();
+        for (String command : commands) {
+            simulator.execute(command);
+        }
+        return simulator;
+    }
+
+    // Records alongside the console; everyNth <= 0 keeps only stage changes
+    public void startRecording(Path file, int everyNth, boolean onStageChange) throws IOException {
+        stopRecording();
+        recorder = new RocketTelemetryRecorder(file, everyNth, onStageChange, 4096);
+        rocket.setTelemetry(RocketTelemetrySink.tee(console, recorder));
+    }
+
+    public void stopRecording() throws IOException {
+        if (recorder != null) {
+            recorder.close();
+            System.out.println("Recorded " + recorder.count() + " telemetry records.");
+            recorder = null;
+            rocket.setTelemetry(console);
+        }
     }
 
     public void simulate() {
         Scanner scanner = new Scanner(System.in);
         while (true) {
             System.out.print("> ");
-            String command = scanner.nextLine();
-            String[] parts = command.split(" ");
-            switch (parts[0]) {
-                case "start_checks":
-                    startChecks();
-                    break;
-                case "launch":
-                    launch();
-                    break;
-                case "fast_forward":
-                    if (parts.length > 1) {
-                        int seconds = Integer.parseInt(parts[1]);
-                        fastForward(seconds);
-                    } else {
-                        System.out.println("Please specify the number of seconds to fast forward.");
+            if (!execute(scanner.nextLine())) {
+                scanner.close();
+                return;
+            }
+        }
+    }
+
+    // Runs one console command; returns false on exit
+    boolean execute(String command) {
+        String[] parts = command.split(" ");
+        if (LOGGED_COMMANDS.contains(parts[0])) {
+            commandLog.add(command);
+        }
+        switch (parts[0]) {
+            case "start_checks":
+                startChecks();
+                break;
+            case "launch":
+                launch();
+                break;
+            case "fast_forward":
+                if (parts.length > 1) {
+                    long seconds = Long.parseLong(parts[1]);
+                    // Optional second argument: print every Nth second, or 0 for transitions only
+                    int printEvery = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+                    fastForward(seconds, printEvery);
+                } else {
+                    System.out.println("Please specify the number of seconds to fast forward.");
+                }
+                break;
+            case "record":
+                // record <file> [everyNth] [stage]: binary telemetry, optionally only every Nth second
+                // and/or on stage changes
+                if (parts.length > 1) {
+                    int everyNth = parts.length > 2 && !parts[2].equals("stage") ? Integer.parseInt(parts[2]) : 1;
+                    boolean onStageChange = parts[parts.length - 1].equals("stage");
+                    tryIo(() -> startRecording(Paths.get(parts[1]), onStageChange && parts.length == 3 ? 0 : everyNth, onStageChange));
+                } else {
+                    System.out.println("Please specify a file to record to.");
+                }
+                break;
+            case "stop_record":
+                tryIo(this::stopRecording);
+                break;
+            case "replay":
+                if (parts.length > 1) {
+                    tryIo(() -> RocketTelemetryReader.read(Paths.get(parts[1]), ConsoleTelemetry::print));
+                } else {
+                    System.out.println("Please specify a file to replay.");
+                }
+                break;
+            case "snapshot":
+                if (parts.length > 1) {
+                    snapshots.put(parts[1], snapshot());
+                } else {
+                    System.out.println("Please specify a snapshot name.");
+                }
+                break;
+            case "restore":
+                if (parts.length > 1 && snapshots.containsKey(parts[1])) {
+                    restore(snapshots.get(parts[1]));
+                } else {
+                    System.out.println("No such snapshot.");
+                }
+                break;
+            case "save_log":
+                if (parts.length > 1) {
+                    tryIo(() -> Files.write(Paths.get(parts[1]), commandLog, StandardCharsets.UTF_8));
+                } else {
+                    System.out.println("Please specify a file to save the command log to.");
+                }
+                break;
+            case "replay_log":
+                // Starts over from a fresh simulator and runs the saved commands
+                if (parts.length > 1) {
+                    tryIo(() -> {
+                        List<String> commands = Files.readAllLines(Paths.get(parts[1]), StandardCharsets.UTF_8);
+                        rocket = new Rocket();
+                        rocket.setTelemetry(recorder != null ? RocketTelemetrySink.tee(console, recorder) : console);
+                        console.rewind();
+                        preLaunchChecksCompleted = false;
+                        commandLog.clear();
+                        snapshots.clear();
+                        for (String logged : commands) {
+                            execute(logged);
+                        }
+                    });
+                } else {
+                    System.out.println("Please specify a command log to replay.");
+                }
+                break;
+            case "exit":
+                tryIo(this::stopRecording);
+                return false;
+            default:
+                System.out.println("Unknown command.");
+        }
+        return true;
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static void tryIo(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            System.out.println("Telemetry file error: " + e.getMessage());
+        }
+    }
+}
+
+// Receives one record per simulated second that a rocket reports. Stage codes are RocketPopulation's.
+interface RocketTelemetrySink {
+    void record(long tick, byte stage, double fuel, double altitude, double speed);
+
+    default void flush() {}
+
+    // The seconds this sink keeps: every tick divisible by the result, or none for 0. The rocket skips
+    // the rest in closed form, and always sends stage changes, including orbit and failure. A sink
+    // still filters what it receives, since a tee passes on the seconds either side wants.
+    default long sampleEvery() {
+        return 1;
+    }
+
+    // Sends every record to both sinks
+    static RocketTelemetrySink tee(RocketTelemetrySink first, RocketTelemetrySink second) {
+        return new RocketTelemetrySink() {
+            @Override
+            public void record(long tick, byte stage, double fuel, double altitude, double speed) {
+                first.record(tick, stage, fuel, altitude, speed);
+                second.record(tick, stage, fuel, altitude, speed);
+            }
+
+            // Every tick either sink samples: the gcd of the two periods
+            @Override
+            public long sampleEvery() {
+                long a = first.sampleEvery();
+                long b = second.sampleEvery();
+                if (a <= 0 || b <= 0) {
+                    return Math.max(a, b);
+                }
+                while (b != 0) {
+                    long r = a % b;
+                    a = b;
+                    b = r;
+                }
+                return a;
+            }
+
+            @Override
+            public void flush() {
+                first.flush();
+                second.flush();
+            }
+        };
+    }
+}
+
+// The original per-second status line, as one optional consumer. Prints every Nth second, or none
+// for 0; a stage change lands on a second already printed, so it adds no line of its own.
+class ConsoleTelemetry implements RocketTelemetrySink {
+    private int printEvery;
+    private long lastTick = -1;
+
+    ConsoleTelemetry(int printEvery) {
+        this.printEvery = printEvery;
+    }
+
+    public void setPrintEvery(int printEvery) {
+        this.printEvery = printEvery;
+    }
+
+    // Mission time went back (restore, replay); the next tick is printed even if it was printed before
+    public void rewind() {
+        lastTick = -1;
+    }
+
+    @Override
+    public long sampleEvery() {
+        return Math.max(0, printEvery);
+    }
+
+    @Override
+    public void record(long tick, byte stage, double fuel, double altitude, double speed) {
+        if (printEvery <= 0 || tick % printEvery != 0 || tick == lastTick) {
+            return;
+        }
+        lastTick = tick;
+        print(tick, stage, fuel, altitude, speed);
+    }
+
+    // Prints any record, e.g. every record of a replayed file
+    static void print(long tick, byte stage, double fuel, double altitude, double speed) {
+        System.out.println("Stage: " + stage + ", Fuel: " + fuel + "%, Altitude: " + altitude + " km, Speed: " + speed + " km/h");
+    }
+}
+
+// Writes fixed-width binary records into a memory-mapped file, keeping every Nth tick and/or every
+// stage change, and forcing the mapping to disk once per batch of records.
+//
+// File:   [magic:4][recordBytes:4][committed record count:8][padding to 64 bytes][records]
+// Record: [tick:8][fuel:8][altitude:8][speed:8][stage:1][padding:7]
+class RocketTelemetryRecorder implements RocketTelemetrySink, Closeable {
+    static final int MAGIC = 0x524B544C; // "RKTL"
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 40;
+    private static final int INITIAL_RECORDS = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int everyNth;
+    private final boolean onStageChange;
+    private final int flushEvery;
+    private MappedByteBuffer buffer;
+    private long count;
+    private long unflushed;
+    private byte lastStage = -1;
+
+    // everyNth <= 0 keeps no periodic ticks, so only stage changes are kept if onStageChange is set
+    public RocketTelemetryRecorder(Path file, int everyNth, boolean onStageChange, int flushEvery) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.everyNth = everyNth;
+        this.onStageChange = onStageChange;
+        this.flushEvery = Math.max(1, flushEvery);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) INITIAL_RECORDS * RECORD_BYTES);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, RECORD_BYTES);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public long sampleEvery() {
+        return Math.max(0, everyNth);
+    }
+
+    @Override
+    public void record(long tick, byte stage, double fuel, double altitude, double speed) {
+        boolean stageChanged = stage != lastStage;
+        lastStage = stage;
+        if (!(everyNth > 0 && tick % everyNth == 0) && !(onStageChange && stageChanged)) {
+            return;
+        }
+        long offset = HEADER_BYTES + count * RECORD_BYTES;
+        if (offset + RECORD_BYTES > buffer.capacity()) {
+            grow();
+        }
+        int position = (int) offset;
+        buffer.putLong(position, tick);
+        buffer.putDouble(position + 8, fuel);
+        buffer.putDouble(position + 16, altitude);
+        buffer.putDouble(position + 24, speed);
+        buffer.put(position + 32, stage);
+        count++;
+        if (++unflushed >= flushEvery) {
+            flush();
+        }
+    }
+
+    // Forces the batch to disk, then publishes the new record count in the header
+    @Override
+    public void flush() {
+        buffer.force();
+        buffer.putLong(8, count);
+        buffer.force(8, 8);
+        unflushed = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.truncate(HEADER_BYTES + count * RECORD_BYTES);
+        channel.close();
+    }
+
+    private void grow() {
+        try {
+            buffer.force();
+            long capacity = HEADER_BYTES + (buffer.capacity() - HEADER_BYTES) * 2L;
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Telemetry file is full.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow telemetry file", e);
+        }
+    }
+}
+
+// Streams a recorder file back into any sink, e.g. ConsoleTelemetry or an analysis pass
+class RocketTelemetryReader {
+    static long read(Path file, RocketTelemetrySink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != RocketTelemetryRecorder.MAGIC) {
+                throw new IOException(file + " is not a rocket telemetry file.");
+            }
+            int recordBytes = buffer.getInt(4);
+            long count = Math.min(buffer.getLong(8), (channel.size() - RocketTelemetryRecorder.HEADER_BYTES) / recordBytes);
+            for (long i = 0; i < count; i++) {
+                int position = (int) (RocketTelemetryRecorder.HEADER_BYTES + i * recordBytes);
+                sink.record(buffer.getLong(position), buffer.get(position + 32), buffer.getDouble(position + 8),
+                        buffer.getDouble(position + 16), buffer.getDouble(position + 24));
+            }
+            return count;
+        }
+    }
+}
+
+// Struct-of-arrays rocket population stepped one fixed second per tick, with the same per-second
+// rules as Rocket.updateStepwise (including its fuel check in every stage). Stage is a byte code.
+//
+// The tick loop avoids per-stage branches: every rocket computes its increments and next stage with
+// conditional selects, so mixed stages do not cause branch mispredictions. The kernel is scalar; the
+// Vector API is still an incubator module on JDK 17, and this file builds with plain javac.
+class RocketPopulation {
+    static final byte PRE_LAUNCH = 0;
+    static final byte STAGE_1 = 1;
+    static final byte STAGE_2 = 2;
+    static final byte ORBIT_ACHIEVED = 3;
+    static final byte MISSION_FAILED = 4;
+    private static final int PARALLEL_CHUNK = 16 * 1024;
+
+    private final int size;
+    private final byte[] stage;
+    private final double[] fuel;
+    private final double[] altitude;
+    private final double[] speed;
+
+    public RocketPopulation(int size) {
+        this.size = size;
+        this.stage = new byte[size];
+        this.fuel = new double[size];
+        this.altitude = new double[size];
+        this.speed = new double[size];
+        Arrays.fill(fuel, Rocket.INITIAL_FUEL);
+    }
+
+    public int size() { return size; }
+    public byte getStage(int id) { return stage[id]; }
+    public double getFuel(int id) { return fuel[id]; }
+    public double getAltitude(int id) { return altitude[id]; }
+    public double getSpeed(int id) { return speed[id]; }
+
+    public void launchAll() {
+        for (int id = 0; id < size; id++) {
+            if (stage[id] == PRE_LAUNCH) {
+                stage[id] = STAGE_1;
+            }
+        }
+    }
+
+    public void setFuel(int id, double value) {
+        fuel[id] = value;
+    }
+
+    // Advances every rocket by one second
+    public void tick() {
+        step(0, size);
+    }
+
+    // Same as tick, split across cores in fixed chunks
+    public void tickParallel() {
+        int chunks = (size + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        IntStream.range(0, chunks).parallel()
+                .forEach(chunk -> step(chunk * PARALLEL_CHUNK, Math.min(size, (chunk + 1) * PARALLEL_CHUNK)));
+    }
+
+    // Number of rockets currently in the given stage
+    public int count(byte stageCode) {
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            count += stage[id] == stageCode ? 1 : 0;
+        }
+        return count;
+    }
+
+    static String stageName(byte stageCode) {
+        switch (stageCode) {
+            case PRE_LAUNCH: return "Pre-Launch";
+            case STAGE_1: return "Stage 1";
+            case STAGE_2: return "Stage 2";
+            case ORBIT_ACHIEVED: return "Orbit Achieved";
+            default: return "Mission Failed";
+        }
+    }
+
+    private void step(int from, int to) {
+        for (int id = from; id < to; id++) {
+            byte s = stage[id];
+            double f = fuel[id];
+            double a = altitude[id];
+            // Masks: a rocket out of fuel fails before burning; only stage 1 and 2 rockets burn
+            boolean failing = f <= 0 && s != MISSION_FAILED;
+            boolean inStage1 = s == STAGE_1 & !failing;
+            boolean inStage2 = s == STAGE_2 & !failing;
+            double burn = inStage1 ? Rocket.STAGE_1_BURN : inStage2 ? Rocket.STAGE_2_BURN : 0.0;
+            double climb = inStage1 ? Rocket.STAGE_1_CLIMB : inStage2 ? Rocket.STAGE_2_CLIMB : 0.0;
+            double acceleration = inStage1 ? Rocket.STAGE_1_ACCELERATION : inStage2 ? Rocket.STAGE_2_ACCELERATION : 0.0;
+            f -= burn;
+            a += climb;
+            fuel[id] = f;
+            altitude[id] = a;
+            speed[id] += acceleration;
+            byte next = inStage1 & f <= Rocket.STAGE_2_FUEL_THRESHOLD ? STAGE_2 : s;
+            next = inStage2 & a >= Rocket.ORBIT_ALTITUDE ? ORBIT_ACHIEVED : next;
+            stage[id] = failing ? MISSION_FAILED : next;
+        }
+    }
+}
+
+// Population stepping throughput and a cross-check against Rocket: java Main population-bench [rockets] [ticks]
+class RocketPopulationBenchmark {
+    static void run(int rockets, int ticks) {
+        RocketPopulation population = new RocketPopulation(rockets);
+        // Vary the starting fuel so every stage, orbit and failure shows up within the run
+        for (int id = 0; id < rockets; id++) {
+            population.setFuel(id, 10 + (id % 128) * 0.5);
+        }
+        population.launchAll();
+
+        Rocket[] references = new Rocket[128];
+        for (int id = 0; id < references.length; id++) {
+            references[id] = new Rocket();
+            references[id].configure(10 + id * 0.5, Rocket.STAGE_1_BURN, Rocket.STAGE_1_CLIMB, Rocket.STAGE_1_ACCELERATION,
+                    Rocket.STAGE_2_BURN, Rocket.STAGE_2_CLIMB, Rocket.STAGE_2_ACCELERATION, Rocket.STAGE_2_FUEL_THRESHOLD,
+                    Rocket.ORBIT_ALTITUDE);
+            references[id].setSilent(true);
+            references[id].launch();
+        }
+
+        long sequential = 0;
+        long parallel = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            long begin = System.nanoTime();
+            if ((tick & 1) == 0) {
+                population.tick();
+                sequential += System.nanoTime() - begin;
+            } else {
+                population.tickParallel();
+                parallel += System.nanoTime() - begin;
+            }
+            for (Rocket reference : references) {
+                reference.updateStepwise(1);
+            }
+        }
+        int sequentialTicks = (ticks + 1) / 2;
+        int parallelTicks = ticks / 2;
+        System.out.printf("Rockets: %,d, ticks: %d%n", rockets, ticks);
+        System.out.printf("Sequential: %.2f ns per rocket-tick%n", (double) sequential / sequentialTicks / rockets);
+        if (parallelTicks > 0) {
+            System.out.printf("Parallel:   %.2f ns per rocket-tick%n", (double) parallel / parallelTicks / rockets);
+        }
+        System.out.printf("Orbit: %,d, failed: %,d, in flight: %,d%n", population.count(RocketPopulation.ORBIT_ACHIEVED),
+                population.count(RocketPopulation.MISSION_FAILED),
+                population.count(RocketPopulation.STAGE_1) + population.count(RocketPopulation.STAGE_2));
+
+        for (int id = 0; id < Math.min(rockets, references.length); id++) {
+            Rocket reference = references[id];
+            if (!RocketPopulation.stageName(population.getStage(id)).equals(reference.getStage())
+                    || Double.compare(population.getFuel(id), reference.getFuel()) != 0
+                    || Double.compare(population.getAltitude(id), reference.getAltitude()) != 0
+                    || Double.compare(population.getSpeed(id), reference.getSpeed()) != 0) {
+                throw new IllegalStateException("Rocket " + id + " differs from the object-per-rocket simulation.");
+            }
+        }
+        System.out.println("Population matched Rocket.updateStepwise for every reference rocket.");
+    }
+}
+
+// Monte Carlo launch campaign: flies millions of randomized rocket variants in parallel.
+// java Main campaign [rockets] [seed] [threads]
+//
+// The work is split into fixed-size chunks by fork-join, and every split also splits the
+// SplittableRandom, so the split tree and each chunk's random stream depend only on the seed.
+// The report is therefore identical for any thread count. Each chunk reuses one Rocket and one
+// stats block, so per-rocket allocation is zero.
+class LaunchCampaign {
+    static final long MAX_MISSION_SECONDS = 100_000;
+    private static final int CHUNK = 4096;
+    private static final int ORBIT_TIME_BUCKETS = 64;
+    private static final int ORBIT_TIME_BUCKET_SECONDS = 16;
+
+    // Aggregates for a range of rockets; merged pairwise up the fork-join tree
+    static final class Stats {
+        long rockets;
+        long orbits;
+        long failedStage1;
+        long failedStage2;
+        long timeouts;
+        long orbitTimeSum;
+        long orbitTimeMin = Long.MAX_VALUE;
+        long orbitTimeMax;
+        final long[] orbitTimeHistogram = new long[ORBIT_TIME_BUCKETS + 1]; // last bucket is overflow
+
+        void merge(Stats other) {
+            rockets += other.rockets;
+            orbits += other.orbits;
+            failedStage1 += other.failedStage1;
+            failedStage2 += other.failedStage2;
+            timeouts += other.timeouts;
+            orbitTimeSum += other.orbitTimeSum;
+            orbitTimeMin = Math.min(orbitTimeMin, other.orbitTimeMin);
+            orbitTimeMax = Math.max(orbitTimeMax, other.orbitTimeMax);
+            for (int i = 0; i < orbitTimeHistogram.length; i++) {
+                orbitTimeHistogram[i] += other.orbitTimeHistogram[i];
+            }
+        }
+
+        long orbitTimePercentile(double percentile) {
+            long rank = Math.max(1, (long) Math.ceil(orbits * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < orbitTimeHistogram.length; i++) {
+                seen += orbitTimeHistogram[i];
+                if (seen >= rank) {
+                    return i == ORBIT_TIME_BUCKETS ? orbitTimeMax : Math.min((i + 1L) * ORBIT_TIME_BUCKET_SECONDS, orbitTimeMax);
+                }
+            }
+            return orbitTimeMax;
+        }
+    }
+
+    @SuppressWarnings("serial") // Serializable only through its superclass; never serialized
+    private static final class Flights extends RecursiveTask<Stats> {
+        private final long count;
+        private final SplittableRandom random;
+
+        Flights(long count, SplittableRandom random) {
+            this.count = count;
+            this.random = random;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (count <= CHUNK) {
+                return fly(count, random);
+            }
+            long half = count / 2;
+            Flights left = new Flights(half, random.split());
+            Flights right = new Flights(count - half, random);
+            left.fork();
+            Stats stats = right.compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    static Stats run(long rockets, long seed, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Flights(rockets, new SplittableRandom(seed)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Randomizes the profile in steps of 1/64 so the closed-form fast-forward stays exact
+    static void randomize(Rocket rocket, SplittableRandom random) {
+        rocket.configure(
+                quantize(random.nextDouble(60, 140)),
+                quantize(random.nextDouble(0.5, 2.0)),
+                quantize(random.nextDouble(5, 15)),
+                quantize(random.nextDouble(500, 1500)),
+                quantize(random.nextDouble(0.25, 1.0)),
+                quantize(random.nextDouble(0.5, 8)),
+                quantize(random.nextDouble(250, 750)),
+                quantize(random.nextDouble(-10, 80)),
+                quantize(random.nextDouble(100, 1500)));
+    }
+
+    private static double quantize(double value) {
+        return Math.round(value * 64) / 64.0;
+    }
+
+    private static Stats fly(long count, SplittableRandom random) {
+        Stats stats = new Stats();
+        Rocket rocket = new Rocket();
+        rocket.setSilent(true);
+        for (long i = 0; i < count; i++) {
+            randomize(rocket, random);
+            rocket.launch();
+            rocket.fastForward(MAX_MISSION_SECONDS);
+            tally(stats, rocket);
+        }
+        return stats;
+    }
+
+    // Counts one finished flight
+    static void tally(Stats stats, Rocket rocket) {
+        stats.rockets++;
+        if ("Orbit Achieved".equals(rocket.getStage())) {
+            long time = rocket.getMissionTime();
+            stats.orbits++;
+            stats.orbitTimeSum += time;
+            stats.orbitTimeMin = Math.min(stats.orbitTimeMin, time);
+            stats.orbitTimeMax = Math.max(stats.orbitTimeMax, time);
+            stats.orbitTimeHistogram[(int) Math.min(ORBIT_TIME_BUCKETS, time / ORBIT_TIME_BUCKET_SECONDS)]++;
+        } else if (rocket.getFailedStage() == 1) {
+            stats.failedStage1++;
+        } else if (rocket.getFailedStage() == 2) {
+            stats.failedStage2++;
+        } else {
+            stats.timeouts++;
+        }
+    }
+
+    static void report(long rockets, long seed, int maxThreads) {
+        Stats stats = null;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long begin = System.nanoTime();
+            stats = run(rockets, seed, threads);
+            long elapsed = System.nanoTime() - begin;
+            System.out.printf("Threads: %2d, %,.0f rockets/s%n", threads, rockets * 1e9 / elapsed);
+        }
+        System.out.printf("Rockets: %,d (seed %d)%n", stats.rockets, seed);
+        print(stats);
+    }
+
+    static void print(Stats stats) {
+        System.out.printf("Success rate: %.4f%%%n", 100.0 * stats.orbits / stats.rockets);
+        System.out.printf("Failures: fuel exhausted in Stage 1: %,d, in Stage 2: %,d, no orbit within %,d s: %,d%n",
+                stats.failedStage1, stats.failedStage2, MAX_MISSION_SECONDS, stats.timeouts);
+        if (stats.orbits > 0) {
+            System.out.printf("Time to orbit: min %d s, mean %.1f s, max %d s, p50 <= %d s, p90 <= %d s, p99 <= %d s%n",
+                    stats.orbitTimeMin, (double) stats.orbitTimeSum / stats.orbits, stats.orbitTimeMax,
+                    stats.orbitTimePercentile(50), stats.orbitTimePercentile(90), stats.orbitTimePercentile(99));
+        }
+    }
+}
+
+// Branches what-if scenarios off one checkpoint. Every scenario restores the shared snapshot instead of
+// re-flying the prefix, applies its own variant and flies on. As in LaunchCampaign, each chunk reuses
+// one Rocket and one stats block, and results merge pairwise up the fork-join tree.
+class ScenarioFork {
+    private static final int CHUNK = 4096;
+
+    interface Variant {
+        void apply(Rocket rocket, int scenario);
+    }
+
+    @SuppressWarnings("serial") // Serializable only through its superclass; never serialized
+    private static final class Branches extends RecursiveTask<LaunchCampaign.Stats> {
+        private final byte[] snapshot;
+        private final Variant variant;
+        private final long seconds;
+        private final int from;
+        private final int to;
+
+        Branches(byte[] snapshot, Variant variant, long seconds, int from, int to) {
+            this.snapshot = snapshot;
+            this.variant = variant;
+            this.seconds = seconds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LaunchCampaign.Stats compute() {
+            if (to - from <= CHUNK) {
+                LaunchCampaign.Stats stats = new LaunchCampaign.Stats();
+                Rocket rocket = new Rocket();
+                rocket.setSilent(true);
+                ByteBuffer buffer = ByteBuffer.wrap(snapshot).asReadOnlyBuffer();
+                for (int scenario = from; scenario < to; scenario++) {
+                    rocket.readSnapshot(buffer.clear());
+                    variant.apply(rocket, scenario);
+                    rocket.fastForward(seconds);
+                    LaunchCampaign.tally(stats, rocket);
+                }
+                return stats;
+            }
+            int middle = (from + to) >>> 1;
+            Branches left = new Branches(snapshot, variant, seconds, from, middle);
+            left.fork();
+            LaunchCampaign.Stats stats = new Branches(snapshot, variant, seconds, middle, to).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    // Flies scenarios [0, scenarios) for up to seconds each, starting from a Rocket snapshot
+    static LaunchCampaign.Stats run(byte[] snapshot, int scenarios, Variant variant, long seconds, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Branches(snapshot, variant, seconds, 0, scenarios));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Flies one campaign profile to the fork point, then branches it into fuel leaks of 0..fuel in
+    // steps of 1/64: java Main scenarios [count] [forkSecond] [seed]
+    static void report(int scenarios, long forkSecond, long seed) {
+        Rocket rocket = new Rocket();
+        rocket.setSilent(true);
+        LaunchCampaign.randomize(rocket, new SplittableRandom(seed));
+        rocket.launch();
+        rocket.fastForward(forkSecond);
+        ByteBuffer buffer = ByteBuffer.allocate(Rocket.SNAPSHOT_BYTES);
+        rocket.writeSnapshot(buffer);
+        byte[] snapshot = buffer.array();
+        double fuelAtFork = rocket.getFuel();
+        System.out.printf("Fork at T+%d s: %s, fuel %.4f%%, altitude %.1f km%n",
+                rocket.getMissionTime(), rocket.getStage(), fuelAtFork, rocket.getAltitude());
+
+        Variant leak = (branch, scenario) -> branch.setFuel(fuelAtFork - Math.floor(fuelAtFork * 64 * scenario / scenarios) / 64);
+        long begin = System.nanoTime();
+        LaunchCampaign.Stats stats = run(snapshot, scenarios, leak, LaunchCampaign.MAX_MISSION_SECONDS,
+                Runtime.getRuntime().availableProcessors());
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("Scenarios: %,d in %.1f ms (%,.0f scenarios/s)%n", stats.rockets, elapsed / 1e6, stats.rockets * 1e9 / elapsed);
+        LaunchCampaign.print(stats);
+    }
+}
+
+// Checks that command logs replay to identical snapshots and that a rocket restored from a snapshot
+// flies on exactly like the original, then times snapshot and restore: java Main check-snapshots [runs]
+class SnapshotCheck {
+    static void run(int runs, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        PrintStream console = System.out;
+        try {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            for (int run = 0; run < runs; run++) {
+                RocketLaunchSimulator session = new RocketLaunchSimulator();
+                for (int i = 0; i < 12; i++) {
+                    switch (random.nextInt(6)) {
+                        case 0: session.execute("start_checks"); break;
+                        case 1: session.execute("launch"); break;
+                        case 2: session.execute("snapshot s" + random.nextInt(3)); break;
+                        case 3: session.execute("restore s" + random.nextInt(3)); break;
+                        default: session.execute("fast_forward " + random.nextInt(80) + " " + random.nextInt(3));
                     }
-                    break;
-                case "exit":
-                    scanner.close();
-                    return;
-                default:
-                    System.out.println("Unknown command.");
+                }
+                RocketLaunchSimulator replayed = RocketLaunchSimulator.replay(session.getCommandLog());
+                if (!Arrays.equals(session.snapshot(), replayed.snapshot())) {
+                    throw new IllegalStateException("Replay differs in run " + run);
+                }
+
+                // The original keeps flying while a copy restored from its snapshot flies the same second leg
+                Rocket original = new Rocket();
+                Rocket restored = new Rocket();
+                original.setSilent(true);
+                restored.setSilent(true);
+                if (run % 2 == 1) {
+                    LaunchCampaign.randomize(original, new SplittableRandom(random.nextLong()));
+                }
+                original.launch();
+                original.fastForward(random.nextInt(200));
+                ByteBuffer buffer = ByteBuffer.allocate(Rocket.SNAPSHOT_BYTES);
+                original.writeSnapshot(buffer);
+                restored.readSnapshot(buffer.flip());
+                long second = random.nextInt(200);
+                original.fastForward(second);
+                restored.fastForward(second);
+                ByteBuffer expected = ByteBuffer.allocate(Rocket.SNAPSHOT_BYTES);
+                ByteBuffer actual = ByteBuffer.allocate(Rocket.SNAPSHOT_BYTES);
+                original.writeSnapshot(expected);
+                restored.writeSnapshot(actual);
+                if (!expected.flip().equals(actual.flip())) {
+                    throw new IllegalStateException("Restored rocket diverged in run " + run);
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+        System.out.println("Replays and restores matched in " + runs + " runs.");
+
+        Rocket rocket = new Rocket();
+        rocket.launch();
+        rocket.setSilent(true);
+        rocket.fastForward(30);
+        ByteBuffer buffer = ByteBuffer.allocate(Rocket.SNAPSHOT_BYTES);
+        int rounds = 10_000_000;
+        long checksum = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            rocket.writeSnapshot(buffer.clear());
+            rocket.readSnapshot(buffer.flip());
+            checksum += rocket.getMissionTime();
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("Snapshot + restore: %.1f ns, %d bytes (checksum %d)%n", (double) elapsed / rounds, Rocket.SNAPSHOT_BYTES, checksum);
+    }
+}
+
+// Differential check of Rocket.fastForward against the stepwise loop: java Main check-fast-forward [runs]
+class FastForwardCheck {
+    static void run(int runs, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        PrintStream console = System.out;
+        for (int run = 0; run < runs; run++) {
+            Rocket stepwise = new Rocket();
+            Rocket fast = new Rocket();
+            Rocket quiet = new Rocket();
+            quiet.setTelemetry(null);
+            // Half of the runs fly the default profile, the rest a random campaign profile
+            if (run % 2 == 1) {
+                long profileSeed = random.nextLong();
+                LaunchCampaign.randomize(stepwise, new SplittableRandom(profileSeed));
+                LaunchCampaign.randomize(fast, new SplittableRandom(profileSeed));
+                LaunchCampaign.randomize(quiet, new SplittableRandom(profileSeed));
+            }
+            ByteArrayOutputStream stepwiseOutput = new ByteArrayOutputStream();
+            ByteArrayOutputStream fastOutput = new ByteArrayOutputStream();
+            try {
+                for (int call = 0; call < 6; call++) {
+                    if (call == 1) {
+                        stepwise.launch();
+                        fast.launch();
+                        quiet.launch();
+                    }
+                    int seconds = random.nextInt(4) == 0 ? random.nextInt(1_000_000) : random.nextInt(60);
+                    System.setOut(new PrintStream(stepwiseOutput));
+                    stepwise.updateStepwise(seconds);
+                    System.setOut(new PrintStream(fastOutput));
+                    fast.fastForward(seconds);
+                    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                    quiet.fastForward(seconds);
+                }
+            } finally {
+                System.setOut(console);
+            }
+            if (!stepwiseOutput.toString().equals(fastOutput.toString())) {
+                throw new IllegalStateException("Output differs in run " + run);
+            }
+            for (Rocket rocket : new Rocket[] { fast, quiet }) {
+                if (!rocket.getStage().equals(stepwise.getStage())
+                        || Double.compare(rocket.getFuel(), stepwise.getFuel()) != 0
+                        || Double.compare(rocket.getAltitude(), stepwise.getAltitude()) != 0
+                        || Double.compare(rocket.getSpeed(), stepwise.getSpeed()) != 0
+                    || rocket.getMissionTime() != stepwise.getMissionTime()
+                    || rocket.getFailedStage() != stepwise.getFailedStage()) {
+                    throw new IllegalStateException("State differs in run " + run);
+                }
             }
         }
+        System.out.println("Fast-forward matched the stepwise loop in " + runs + " runs.");
     }
 }
 
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("check-fast-forward")) {
+            FastForwardCheck.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000, 42);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("population-bench")) {
+            int rockets = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+            int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+            RocketPopulationBenchmark.run(rockets, ticks);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("check-snapshots")) {
+            SnapshotCheck.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000, 42);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("scenarios")) {
+            int scenarios = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+            long forkSecond = args.length > 2 ? Long.parseLong(args[2]) : 20;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+            ScenarioFork.report(scenarios, forkSecond, seed);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("campaign")) {
+            long rockets = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+            int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            LaunchCampaign.report(rockets, seed, threads);
+            return;
+        }
+
         RocketLaunchSimulator simulator = new RocketLaunchSimulator();
         simulator.simulate();
     }
@@ -1,19 +1,63 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
 
 class Satellite {
     private String orientation;
     private String solarPanels;
     private int dataCollected;
+    // Optional event history; this satellite records under telemetryId
+    private final SatelliteTelemetry telemetry;
+    private final int telemetryId;
 
     public Satellite() {
+        this(null, 0);
+    }
+
+    public Satellite(SatelliteTelemetry telemetry, int telemetryId) {
         this.orientation = "North";
         this.solarPanels = "Inactive";
         this.dataCollected = 0;
+        this.telemetry = telemetry;
+        this.telemetryId = telemetryId;
     }
 
     public void rotate(String direction) {
         if (direction.equals("North") || direction.equals("South") || direction.equals("East") || direction.equals("West")) {
             this.orientation = direction;
+            record(SatelliteTelemetry.EVENT_ROTATE, 0);
             System.out.println("Satellite rotated to " + direction + ".");
         } else {
             System.out.println("Invalid direction. Use North, South, East, or West.");
@@ -22,17 +66,20 @@ class Satellite {
 
     public void activatePanels() {
         this.solarPanels = "Active";
+        record(SatelliteTelemetry.EVENT_PANELS_ON, 0);
         System.out.println("Solar panels activated.");
     }
 
     public void deactivatePanels() {
         this.solarPanels = "Inactive";
+        record(SatelliteTelemetry.EVENT_PANELS_OFF, 0);
         System.out.println("Solar panels deactivated.");
     }
 
     public void collectData() {
         if (this.solarPanels.equals("Active")) {
             this.dataCollected += 10;
+            record(SatelliteTelemetry.EVENT_COLLECT, 10);
             System.out.println("Data collected. Total data: " + this.dataCollected + " units.");
         } else {
             System.out.println("Solar panels are inactive. Cannot collect data.");
@@ -45,43 +92,1281 @@ class Satellite {
         System.out.println("Solar Panels: " + this.solarPanels);
         System.out.println("Data Collected: " + this.dataCollected + " units");
     }
+
+    // Prints collected data over the last windowSeconds from the telemetry history
+    public void displayTelemetry(int windowSeconds) {
+        if (telemetry == null) {
+            System.out.println("Telemetry is not enabled.");
+            return;
+        }
+        if (windowSeconds <= 0) {
+            System.out.println("The telemetry window must be at least one second.");
+            return;
+        }
+        long collected = telemetry.sum(telemetryId, SatelliteTelemetry.EVENT_COLLECT, windowSeconds * 1000L);
+        System.out.printf("Data collected in the last %d s: %d units (%.2f units/s)%n",
+                windowSeconds, collected, (double) collected / windowSeconds);
+    }
+
+    private void record(byte type, long value) {
+        if (telemetry != null) {
+            telemetry.record(telemetryId, type, SatelliteFleet.parseDirection(orientation), solarPanels.equals("Active"), value);
+        }
+    }
+
+    // Runs an encoded command (see SatelliteCommands); the satellite id is ignored
+    public void execute(long command) {
+        switch (SatelliteCommands.opcode(command)) {
+            case SatelliteCommands.OP_ROTATE:
+                byte direction = SatelliteCommands.argument(command);
+                if (direction >= 0 && direction <= SatelliteFleet.WEST) {
+                    rotate(SatelliteFleet.directionName(direction));
+                } else {
+                    System.out.println("Invalid direction. Use North, South, East, or West.");
+                }
+                break;
+            case SatelliteCommands.OP_ACTIVATE_PANELS:
+                activatePanels();
+                break;
+            case SatelliteCommands.OP_DEACTIVATE_PANELS:
+                deactivatePanels();
+                break;
+            case SatelliteCommands.OP_COLLECT_DATA:
+                collectData();
+                break;
+            case SatelliteCommands.OP_STATUS:
+                displayStatus();
+                break;
+            default:
+                System.out.println("Unknown command.");
+        }
+    }
+}
+
+// Struct-of-arrays fleet: satellite state lives in primitive arrays indexed by satellite id
+class SatelliteFleet {
+    static final byte NORTH = 0;
+    static final byte SOUTH = 1;
+    static final byte EAST = 2;
+    static final byte WEST = 3;
+    private static final String[] DIRECTIONS = { "North", "South", "East", "West" };
+    // Satellites per parallel task: 64 bitset words, so tasks never share a word
+    private static final int PARALLEL_CHUNK = 64 * 64;
+
+    private final int size;
+    private final byte[] orientation;
+    private final long[] panelsActive;
+    private final long[] dataCollected;
+    private SatelliteTelemetry telemetry;
+
+    public SatelliteFleet(int size) {
+        this.size = size;
+        this.orientation = new byte[size]; // every satellite starts facing North
+        this.panelsActive = new long[(size + 63) >>> 6];
+        this.dataCollected = new long[size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Records every later rotate, panel and collect event; the telemetry must cover the fleet's ids
+    public void attachTelemetry(SatelliteTelemetry telemetry) {
+        if (telemetry.satellites() < size) {
+            throw new IllegalArgumentException("Telemetry covers " + telemetry.satellites() + " satellites, fleet has " + size);
+        }
+        this.telemetry = telemetry;
+    }
+
+    // Direction code for a name, or -1 if it is not North, South, East or West
+    static byte parseDirection(String direction) {
+        for (byte code = 0; code < DIRECTIONS.length; code++) {
+            if (DIRECTIONS[code].equals(direction)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    static String directionName(byte direction) {
+        return DIRECTIONS[direction];
+    }
+
+    public void rotate(int id, byte direction) {
+        orientation[id] = direction;
+        record(id, SatelliteTelemetry.EVENT_ROTATE, 0);
+    }
+
+    public void activatePanels(int id) {
+        panelsActive[id >>> 6] |= 1L << id;
+        record(id, SatelliteTelemetry.EVENT_PANELS_ON, 0);
+    }
+
+    public void deactivatePanels(int id) {
+        panelsActive[id >>> 6] &= ~(1L << id);
+        record(id, SatelliteTelemetry.EVENT_PANELS_OFF, 0);
+    }
+
+    // Returns false, collecting nothing, when the satellite's panels are inactive
+    public boolean collectData(int id) {
+        if (!isPanelsActive(id)) {
+            return false;
+        }
+        dataCollected[id] += 10;
+        record(id, SatelliteTelemetry.EVENT_COLLECT, 10);
+        return true;
+    }
+
+    public byte getOrientation(int id) {
+        return orientation[id];
+    }
+
+    public boolean isPanelsActive(int id) {
+        return (panelsActive[id >>> 6] & (1L << id)) != 0;
+    }
+
+    public long getDataCollected(int id) {
+        return dataCollected[id];
+    }
+
+    public void displayStatus(int id) {
+        System.out.println("Current Status:");
+        System.out.println("Orientation: " + directionName(orientation[id]));
+        System.out.println("Solar Panels: " + (isPanelsActive(id) ? "Active" : "Inactive"));
+        System.out.println("Data Collected: " + dataCollected[id] + " units");
+    }
+
+    // Bulk operations over the id range [from, to)
+
+    public void rotateRange(int from, int to, byte direction) {
+        Arrays.fill(orientation, from, to, direction);
+        if (telemetry != null) {
+            for (int id = from; id < to; id++) {
+                record(id, SatelliteTelemetry.EVENT_ROTATE, 0);
+            }
+        }
+    }
+
+    // Rotates every satellite whose bit is set in the group mask (one bit per satellite id)
+    public void rotateGroup(long[] group, byte direction) {
+        for (int word = 0; word < group.length; word++) {
+            long bits = group[word];
+            while (bits != 0) {
+                int id = (word << 6) + Long.numberOfTrailingZeros(bits);
+                orientation[id] = direction;
+                record(id, SatelliteTelemetry.EVENT_ROTATE, 0);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    public void activatePanelsRange(int from, int to) {
+        for (int id = from; id < to; id++) {
+            activatePanels(id);
+        }
+    }
+
+    public void deactivatePanelsRange(int from, int to) {
+        for (int id = from; id < to; id++) {
+            deactivatePanels(id);
+        }
+    }
+
+    // Collects data on every satellite with active panels; returns how many collected
+    public int collectDataAllActive() {
+        return collectDataWords(0, panelsActive.length);
+    }
+
+    // Same as collectDataAllActive, split across cores in word-aligned chunks
+    public int collectDataAllActiveParallel() {
+        int words = panelsActive.length;
+        int wordsPerChunk = PARALLEL_CHUNK >>> 6;
+        int chunks = (words + wordsPerChunk - 1) / wordsPerChunk;
+        return IntStream.range(0, chunks).parallel()
+                .map(chunk -> collectDataWords(chunk * wordsPerChunk, Math.min(words, (chunk + 1) * wordsPerChunk)))
+                .sum();
+    }
+
+    // Counts satellites facing the given direction
+    public int countFacing(byte direction) {
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            count += orientation[id] == direction ? 1 : 0;
+        }
+        return count;
+    }
+
+    private void record(int id, byte type, long value) {
+        SatelliteTelemetry telemetry = this.telemetry;
+        if (telemetry != null) {
+            telemetry.record(id, type, orientation[id], isPanelsActive(id), value);
+        }
+    }
+
+    private int collectDataWords(int fromWord, int toWord) {
+        int collected = 0;
+        for (int word = fromWord; word < toWord; word++) {
+            long bits = panelsActive[word];
+            collected += Long.bitCount(bits);
+            while (bits != 0) {
+                int id = (word << 6) + Long.numberOfTrailingZeros(bits);
+                dataCollected[id] += 10;
+                record(id, SatelliteTelemetry.EVENT_COLLECT, 10);
+                bits &= bits - 1;
+            }
+        }
+        return collected;
+    }
+}
+
+// Fleet throughput run: java SatelliteCommandSystem fleet-bench [satellites]
+class SatelliteFleetBenchmark {
+    private static final int ROUNDS = 20;
+
+    static void run(int satellites) {
+        SatelliteFleet fleet = new SatelliteFleet(satellites);
+        fleet.activatePanelsRange(0, satellites / 2);
+        long[] eastGroup = new long[(satellites + 63) >>> 6];
+        for (int id = 0; id < satellites; id += 3) {
+            eastGroup[id >>> 6] |= 1L << id;
+        }
+        System.out.printf("Satellites: %,d, ~%.1f bytes per satellite%n", satellites,
+                (satellites + satellites / 8.0 + satellites * 8.0) / satellites);
+
+        report("rotate (single command)", satellites, () -> {
+            for (int id = 0; id < satellites; id++) {
+                fleet.rotate(id, (byte) (id & 3));
+            }
+        });
+        report("collectData (single command)", satellites, () -> {
+            for (int id = 0; id < satellites; id++) {
+                fleet.collectData(id);
+            }
+        });
+        report("rotateRange to East", satellites, () -> fleet.rotateRange(0, satellites, SatelliteFleet.EAST));
+        report("rotateGroup to East", satellites, () -> fleet.rotateGroup(eastGroup, SatelliteFleet.EAST));
+        report("collectDataAllActive", satellites, fleet::collectDataAllActive);
+        report("collectDataAllActiveParallel", satellites, fleet::collectDataAllActiveParallel);
+    }
+
+    // Same bulk collect with every event recorded to off-heap telemetry, plus a window query over the fleet
+    static void runWithTelemetry(int satellites, int slotsPerSatellite) throws IOException {
+        Path file = Files.createTempFile("satellite-telemetry", ".dat");
+        try (SatelliteTelemetry telemetry = new SatelliteTelemetry(file, satellites, slotsPerSatellite)) {
+            SatelliteFleet fleet = new SatelliteFleet(satellites);
+            fleet.attachTelemetry(telemetry);
+            fleet.activatePanelsRange(0, satellites / 2);
+            long heapBefore = usedHeap();
+            report("collectDataAllActive+telemetry", satellites, fleet::collectDataAllActive);
+            report("collectDataAllActiveParallel+telemetry", satellites, fleet::collectDataAllActiveParallel);
+            long begin = System.nanoTime();
+            long collected = telemetry.sumAll(SatelliteTelemetry.EVENT_COLLECT, 60_000);
+            System.out.printf("Fleet collect sum over last 60 s: %,d units in %d ms%n", collected, (System.nanoTime() - begin) / 1_000_000);
+            System.out.printf("Heap growth while recording: %,d KB%n", (usedHeap() - heapBefore) / 1024);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    private static void report(String name, int satellites, Runnable operation) {
+        for (int i = 0; i < ROUNDS; i++) {
+            operation.run(); // warm-up
+        }
+        long begin = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            operation.run();
+        }
+        double nanosPerSatellite = (double) (System.nanoTime() - begin) / ROUNDS / satellites;
+        System.out.printf("%-40s %8.2f ns/satellite%n", name, nanosPerSatellite);
+    }
+}
+
+// Off-heap telemetry: one fixed-size ring of event records per satellite in a memory-mapped file.
+//
+// Satellite region: [head:8][padding to 64 bytes][slots x 32-byte records]
+// Record:           [sequence:8][timeMillis:8][value:8][type:1][orientation:1][panels:1][padding:5]
+// Writers claim a sequence with an atomic add on the head and publish the record by storing its
+// sequence + 1 last, with release semantics. Readers check that sequence before and after reading
+// the fields, so a record overwritten while being read is skipped. Nothing here lives on the heap.
+class SatelliteTelemetry implements Closeable {
+    static final byte EVENT_COLLECT = 1;
+    static final byte EVENT_ROTATE = 2;
+    static final byte EVENT_PANELS_ON = 3;
+    static final byte EVENT_PANELS_OFF = 4;
+
+    static final int RECORD_BYTES = 32;
+    private static final int HEADER_BYTES = 64;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    interface RecordVisitor {
+        void visit(long sequence, long timeMillis, byte type, byte orientation, boolean panelsActive, long value);
+    }
+
+    private final FileChannel channel;
+    private final int satellites;
+    private final int slotMask;
+    private final long regionBytes;
+    private final int satellitesPerMapping;
+    // A single mapping is limited to 2 GB, so large fleets span several
+    private final MappedByteBuffer[] mappings;
+
+    public SatelliteTelemetry(Path file, int satellites, int slotsPerSatellite) throws IOException {
+        int slots = Integer.highestOneBit(Math.max(2, slotsPerSatellite - 1)) << 1;
+        this.satellites = satellites;
+        this.slotMask = slots - 1;
+        this.regionBytes = HEADER_BYTES + (long) slots * RECORD_BYTES;
+        this.satellitesPerMapping = (int) Math.min(satellites, Integer.MAX_VALUE / regionBytes);
+        if (satellitesPerMapping == 0) {
+            throw new IllegalArgumentException("Too many slots per satellite: " + slotsPerSatellite);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.mappings = new MappedByteBuffer[(satellites + satellitesPerMapping - 1) / satellitesPerMapping];
+        for (int m = 0; m < mappings.length; m++) {
+            int count = Math.min(satellitesPerMapping, satellites - m * satellitesPerMapping);
+            mappings[m] = channel.map(FileChannel.MapMode.READ_WRITE, m * satellitesPerMapping * regionBytes, count * regionBytes);
+        }
+    }
+
+    public int satellites() {
+        return satellites;
+    }
+
+    public void record(int satelliteId, byte type, byte orientation, boolean panelsActive, long value) {
+        MappedByteBuffer buffer = mappings[satelliteId / satellitesPerMapping];
+        int region = regionOffset(satelliteId);
+        long sequence = (long) LONGS.getAndAdd(buffer, region, 1L);
+        int record = region + HEADER_BYTES + (int) (sequence & slotMask) * RECORD_BYTES;
+        LONGS.setOpaque(buffer, record, -1L); // mark the slot as being written
+        VarHandle.storeStoreFence();
+        buffer.putLong(record + 8, System.currentTimeMillis());
+        buffer.putLong(record + 16, value);
+        buffer.put(record + 24, type);
+        buffer.put(record + 25, orientation);
+        buffer.put(record + 26, panelsActive ? (byte) 1 : (byte) 0);
+        LONGS.setRelease(buffer, record, sequence + 1);
+    }
+
+    // Total events ever recorded for the satellite; the newest has sequence head - 1
+    public long head(int satelliteId) {
+        return (long) LONGS.getAcquire(mappings[satelliteId / satellitesPerMapping], regionOffset(satelliteId));
+    }
+
+    // Streams retained records from fromSequence onwards, oldest first; returns the next sequence to read
+    public long read(int satelliteId, long fromSequence, RecordVisitor visitor) {
+        long head = head(satelliteId);
+        long sequence = Math.max(fromSequence, head - slotMask - 1);
+        for (; sequence < head; sequence++) {
+            visitRecord(satelliteId, sequence, visitor);
+        }
+        return sequence;
+    }
+
+    // Sum of the values of one event type recorded within the last windowMillis
+    public long sum(int satelliteId, byte type, long windowMillis) {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        MappedByteBuffer buffer = mappings[satelliteId / satellitesPerMapping];
+        int region = regionOffset(satelliteId);
+        long head = head(satelliteId);
+        long sum = 0;
+        // Newest first, stopping at the first record older than the window
+        for (long sequence = head - 1; sequence >= 0 && sequence > head - 1 - slotMask - 1; sequence--) {
+            int record = region + HEADER_BYTES + (int) (sequence & slotMask) * RECORD_BYTES;
+            long published = (long) LONGS.getAcquire(buffer, record);
+            long timeMillis = buffer.getLong(record + 8);
+            long value = buffer.getLong(record + 16);
+            byte recordType = buffer.get(record + 24);
+            VarHandle.loadLoadFence();
+            if (published != sequence + 1 || (long) LONGS.getOpaque(buffer, record) != published) {
+                continue; // being written or already overwritten
+            }
+            if (timeMillis < cutoff) {
+                break;
+            }
+            if (recordType == type) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    // Per-second rate of one event type's values over the last windowSeconds
+    public double rate(int satelliteId, byte type, int windowSeconds) {
+        return (double) sum(satelliteId, type, windowSeconds * 1000L) / windowSeconds;
+    }
+
+    public long sumAll(byte type, long windowMillis) {
+        long sum = 0;
+        for (int id = 0; id < satellites; id++) {
+            sum += sum(id, type, windowMillis);
+        }
+        return sum;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+        channel.close();
+    }
+
+    private boolean visitRecord(int satelliteId, long sequence, RecordVisitor visitor) {
+        MappedByteBuffer buffer = mappings[satelliteId / satellitesPerMapping];
+        int record = regionOffset(satelliteId) + HEADER_BYTES + (int) (sequence & slotMask) * RECORD_BYTES;
+        long published = (long) LONGS.getAcquire(buffer, record);
+        long timeMillis = buffer.getLong(record + 8);
+        long value = buffer.getLong(record + 16);
+        byte type = buffer.get(record + 24);
+        byte orientation = buffer.get(record + 25);
+        boolean panels = buffer.get(record + 26) != 0;
+        VarHandle.loadLoadFence();
+        if (published != sequence + 1 || (long) LONGS.getOpaque(buffer, record) != published) {
+            return false;
+        }
+        visitor.visit(sequence, timeMillis, type, orientation, panels, value);
+        return true;
+    }
+
+    private int regionOffset(int satelliteId) {
+        return (int) ((satelliteId % satellitesPerMapping) * regionBytes);
+    }
+}
+
+// Lock-free log-linear latency histogram: 16 linear sub-buckets per power of two (about 6% precision)
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.getAndIncrement(bucketOf(value));
+        total.increment();
+        sumNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100); 0 when nothing was recorded
+    public long percentile(double percentile) {
+        long recorded = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            recorded += counts.get(bucket);
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
+
+// Per-command-type counters and latency histograms, shared by the console and the pipeline
+class CommandMetrics {
+    private final LatencyHistogram[] histograms = new LatencyHistogram[SatelliteCommands.OP_STATUS + 1];
+
+    public CommandMetrics() {
+        for (int opcode = SatelliteCommands.OP_ROTATE; opcode <= SatelliteCommands.OP_STATUS; opcode++) {
+            histograms[opcode] = new LatencyHistogram();
+        }
+    }
+
+    public void record(byte opcode, long nanos) {
+        if (opcode >= SatelliteCommands.OP_ROTATE && opcode <= SatelliteCommands.OP_STATUS) {
+            histograms[opcode].record(nanos);
+        }
+    }
+
+    public LatencyHistogram histogram(byte opcode) {
+        return histograms[opcode];
+    }
+
+    // Console dump for the metrics command
+    public void display() {
+        System.out.printf("%-18s %12s %10s %10s %10s %10s %10s%n", "Command", "Count", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns", "max ns");
+        for (int opcode = SatelliteCommands.OP_ROTATE; opcode <= SatelliteCommands.OP_STATUS; opcode++) {
+            LatencyHistogram histogram = histograms[opcode];
+            System.out.printf("%-18s %12d %10d %10d %10d %10d %10d%n", SatelliteCommands.name((byte) opcode), histogram.count(),
+                    histogram.percentile(50), histogram.percentile(90), histogram.percentile(99), histogram.percentile(99.9),
+                    histogram.maxNanos());
+        }
+    }
+
+    // Prometheus text exposition format: a counter and a latency summary per command type
+    public void writePrometheus(Appendable out) throws IOException {
+        double[] quantiles = { 0.5, 0.9, 0.99, 0.999 };
+        out.append("# HELP satellite_commands_total Satellite commands handled, by command type.\n");
+        out.append("# TYPE satellite_commands_total counter\n");
+        for (int opcode = SatelliteCommands.OP_ROTATE; opcode <= SatelliteCommands.OP_STATUS; opcode++) {
+            out.append("satellite_commands_total{command=\"").append(SatelliteCommands.name((byte) opcode)).append("\"} ")
+                    .append(Long.toString(histograms[opcode].count())).append('\n');
+        }
+        out.append("# HELP satellite_command_latency_seconds Satellite command latency, by command type.\n");
+        out.append("# TYPE satellite_command_latency_seconds summary\n");
+        for (int opcode = SatelliteCommands.OP_ROTATE; opcode <= SatelliteCommands.OP_STATUS; opcode++) {
+            LatencyHistogram histogram = histograms[opcode];
+            String command = SatelliteCommands.name((byte) opcode);
+            for (double quantile : quantiles) {
+                out.append("satellite_command_latency_seconds{command=\"").append(command).append("\",quantile=\"")
+                        .append(Double.toString(quantile)).append("\"} ")
+                        .append(Double.toString(histogram.percentile(quantile * 100) / 1e9)).append('\n');
+            }
+            out.append("satellite_command_latency_seconds_sum{command=\"").append(command).append("\"} ")
+                    .append(Double.toString(histogram.sumNanos() / 1e9)).append('\n');
+            out.append("satellite_command_latency_seconds_count{command=\"").append(command).append("\"} ")
+                    .append(Long.toString(histogram.count())).append('\n');
+        }
+    }
+
+    // Rewrites the file every period from a daemon thread; each snapshot replaces the last atomically
+    public ScheduledExecutorService exportPeriodically(Path file, long period, TimeUnit unit) {
+        ScheduledExecutorService exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleAtFixedRate(() -> {
+            try {
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (Writer writer = Files.newBufferedWriter(temp)) {
+                    writePrometheus(writer);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.out.println("Metrics export failed: " + e.getMessage());
+            }
+        }, period, period, unit);
+        return exporter;
+    }
+}
+
+// Recording overhead: java SatelliteCommandSystem metrics-bench [recordsPerThread]
+class CommandMetricsBenchmark {
+    static void run(int recordsPerThread) throws InterruptedException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            CommandMetrics metrics = new CommandMetrics();
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    SplittableRandom random = new SplittableRandom();
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        metrics.record((byte) (SatelliteCommands.OP_ROTATE + (i & 3)), 100 + random.nextInt(10_000));
+                    }
+                });
+            }
+            long begin = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - begin;
+            System.out.printf("Threads: %2d, %.1f ns per record per thread, %,.0f records/s%n", threads,
+                    (double) elapsed / recordsPerThread, (double) threads * recordsPerThread * 1e9 / elapsed);
+        }
+    }
+}
+
+// Command encoding shared by every command path: [opcode:8][argument:8][satellite id:32] in one long
+final class SatelliteCommands {
+    static final byte OP_ROTATE = 1;
+    static final byte OP_ACTIVATE_PANELS = 2;
+    static final byte OP_DEACTIVATE_PANELS = 3;
+    static final byte OP_COLLECT_DATA = 4;
+    static final byte OP_STATUS = 5;
+
+    // parseText results that are not commands
+    static final long UNKNOWN_COMMAND = -1;
+    static final long MISSING_DIRECTION = -2;
+
+    private static final byte INVALID_DIRECTION = -1;
+
+    private static final String[] NAMES = { null, "rotate", "activatePanels", "deactivatePanels", "collectData", "status" };
+
+    private SatelliteCommands() {}
+
+    static String name(byte opcode) {
+        return opcode > 0 && opcode < NAMES.length ? NAMES[opcode] : "unknown";
+    }
+
+    // Maps a console line onto the binary opcodes without splitting or allocating; targets satellite 0
+    static long parseText(String line) {
+        int end = line.indexOf(' ');
+        int nameEnd = end < 0 ? line.length() : end;
+        if (isWord(line, nameEnd, "rotate")) {
+            if (end < 0) {
+                return MISSING_DIRECTION;
+            }
+            int argumentEnd = line.indexOf(' ', end + 1);
+            argumentEnd = argumentEnd < 0 ? line.length() : argumentEnd;
+            byte direction = INVALID_DIRECTION;
+            for (byte code = SatelliteFleet.NORTH; code <= SatelliteFleet.WEST; code++) {
+                String name = SatelliteFleet.directionName(code);
+                if (argumentEnd - end - 1 == name.length() && line.startsWith(name, end + 1)) {
+                    direction = code;
+                }
+            }
+            return encode(OP_ROTATE, 0, direction);
+        }
+        if (isWord(line, nameEnd, "activatePanels")) {
+            return encode(OP_ACTIVATE_PANELS, 0, (byte) 0);
+        }
+        if (isWord(line, nameEnd, "deactivatePanels")) {
+            return encode(OP_DEACTIVATE_PANELS, 0, (byte) 0);
+        }
+        if (isWord(line, nameEnd, "collectData")) {
+            return encode(OP_COLLECT_DATA, 0, (byte) 0);
+        }
+        if (isWord(line, nameEnd, "status")) {
+            return encode(OP_STATUS, 0, (byte) 0);
+        }
+        return UNKNOWN_COMMAND;
+    }
+
+    private static boolean isWord(String line, int wordEnd, String word) {
+        return wordEnd == word.length() && line.startsWith(word);
+    }
+
+    static long encode(byte opcode, int satelliteId, byte argument) {
+        return ((opcode & 0xFFL) << 40) | ((argument & 0xFFL) << 32) | (satelliteId & 0xFFFFFFFFL);
+    }
+
+    static byte opcode(long command) { return (byte) (command >>> 40); }
+    static byte argument(long command) { return (byte) (command >>> 32); }
+    static int satelliteId(long command) { return (int) command; }
+
+    // Applies one command to the fleet; returns false if it was rejected
+    // (unknown satellite, opcode or direction, or inactive panels)
+    static boolean execute(SatelliteFleet fleet, long command) {
+        int id = satelliteId(command);
+        if (id < 0 || id >= fleet.size()) {
+            return false;
+        }
+        switch (opcode(command)) {
+            case OP_ROTATE:
+                byte direction = argument(command);
+                if (direction < SatelliteFleet.NORTH || direction > SatelliteFleet.WEST) {
+                    return false;
+                }
+                fleet.rotate(id, direction);
+                return true;
+            case OP_ACTIVATE_PANELS:
+                fleet.activatePanels(id);
+                return true;
+            case OP_DEACTIVATE_PANELS:
+                fleet.deactivatePanels(id);
+                return true;
+            case OP_COLLECT_DATA:
+                return fleet.collectData(id);
+            case OP_STATUS:
+                fleet.displayStatus(id);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
+
+// Asynchronous command pipeline: one bounded MPSC queue and one worker thread per shard.
+// All commands for a satellite land in the same shard, so they run in submission order.
+class SatelliteCommandPipeline implements AutoCloseable {
+    // Called on the shard's worker thread after each command runs
+    interface CommandObserver {
+        void completed(int shard, long command, long latencyNanos);
+    }
+
+    // Bounded multi-producer single-consumer ring; producers claim slots by CAS and publish per slot
+    private static final class CommandRing {
+        // Set in tail when the pipeline closes; a claim that races with it fails its CAS, so no command
+        // is queued after the worker may have stopped
+        private static final long CLOSED = Long.MIN_VALUE;
+
+        private final int capacity;
+        private final int mask;
+        private final long[] commands;
+        private final long[] submitNanos;
+        // Holds sequence + 1 once the slot for that sequence is written
+        private final AtomicLongArray published;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        CommandRing(int capacity) {
+            this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.mask = this.capacity - 1;
+            this.commands = new long[this.capacity];
+            this.submitNanos = new long[this.capacity];
+            this.published = new AtomicLongArray(this.capacity);
+        }
+
+        // False if the ring is full or closed
+        boolean offer(long command, long now) {
+            long sequence;
+            do {
+                sequence = tail.get();
+                if ((sequence & CLOSED) != 0 || sequence - head >= capacity) {
+                    return false;
+                }
+            } while (!tail.compareAndSet(sequence, sequence + 1));
+            int slot = (int) sequence & mask;
+            commands[slot] = command;
+            submitNanos[slot] = now;
+            published.lazySet(slot, sequence + 1);
+            return true;
+        }
+
+        void close() {
+            long sequence;
+            do {
+                sequence = tail.get();
+            } while ((sequence & CLOSED) == 0 && !tail.compareAndSet(sequence, sequence | CLOSED));
+        }
+
+        boolean isClosed() {
+            return (tail.get() & CLOSED) != 0;
+        }
+
+        // Closed, and every claimed slot has been drained
+        boolean isFinished() {
+            long sequence = tail.get();
+            return (sequence & CLOSED) != 0 && (sequence & ~CLOSED) == head;
+        }
+    }
+
+    private final SatelliteFleet fleet;
+    private final CommandRing[] rings;
+    private final Thread[] workers;
+    private final int batchSize;
+    private final CommandObserver observer;
+    private final CommandMetrics metrics;
+
+    public SatelliteCommandPipeline(SatelliteFleet fleet, int shards, int queueCapacity, int batchSize, CommandObserver observer) {
+        this(fleet, shards, queueCapacity, batchSize, observer, null);
+    }
+
+    // metrics, if given, records each command's execution time on the worker thread
+    public SatelliteCommandPipeline(SatelliteFleet fleet, int shards, int queueCapacity, int batchSize, CommandObserver observer,
+            CommandMetrics metrics) {
+        int shardsPow2 = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.fleet = fleet;
+        this.rings = new CommandRing[shardsPow2];
+        this.workers = new Thread[shardsPow2];
+        this.batchSize = batchSize;
+        this.observer = observer;
+        this.metrics = metrics;
+        for (int shard = 0; shard < shardsPow2; shard++) {
+            rings[shard] = new CommandRing(queueCapacity);
+            int index = shard;
+            workers[shard] = new Thread(() -> drainLoop(index), "satellite-shard-" + shard);
+            workers[shard].setDaemon(true);
+            workers[shard].start();
+        }
+    }
+
+    public int shards() {
+        return rings.length;
+    }
+
+    // Satellites sharing a panel bitset word share a shard, so workers never write the same word
+    int shardOf(int satelliteId) {
+        int word = satelliteId >>> 6;
+        return (word ^ (word >>> 16)) & (rings.length - 1);
+    }
+
+    // Non-blocking submit; returns false when the shard's queue is full, and throws once the pipeline
+    // is closed, since a false there would read as backpressure and the command would never run
+    public boolean trySubmit(long command) {
+        CommandRing ring = rings[shardOf(SatelliteCommands.satelliteId(command))];
+        if (ring.offer(command, System.nanoTime())) {
+            return true;
+        }
+        if (ring.isClosed()) {
+            throw new IllegalStateException("Pipeline is closed.");
+        }
+        return false;
+    }
+
+    // Blocking submit: applies backpressure by waiting until the shard's queue has room
+    public void submit(long command) throws InterruptedException {
+        CommandRing ring = rings[shardOf(SatelliteCommands.satelliteId(command))];
+        long now = System.nanoTime();
+        for (int spins = 0; !ring.offer(command, now); spins++) {
+            if (ring.isClosed()) {
+                throw new IllegalStateException("Pipeline is closed.");
+            }
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(10_000);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+
+    // Stops accepting work at once; the workers drain what was already queued and are waited for.
+    // An interrupt does not cut the wait short (the drain is bounded); it is re-asserted on return.
+    @Override
+    public void close() {
+        for (CommandRing ring : rings) {
+            ring.close();
+        }
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop(int shard) {
+        CommandRing ring = rings[shard];
+        int idleSpins = 0;
+        while (true) {
+            int drained = drainBatch(shard, ring);
+            if (drained > 0) {
+                idleSpins = 0;
+            } else if (ring.isFinished()) {
+                return;
+            } else if (++idleSpins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(50_000);
+            }
+        }
+    }
+
+    private int drainBatch(int shard, CommandRing ring) {
+        long head = ring.head;
+        int drained = 0;
+        while (drained < batchSize) {
+            int slot = (int) head & ring.mask;
+            if (ring.published.get(slot) != head + 1) {
+                break;
+            }
+            long command = ring.commands[slot];
+            long submitted = ring.submitNanos[slot];
+            if (metrics != null) {
+                long begin = System.nanoTime();
+                SatelliteCommands.execute(fleet, command);
+                metrics.record(SatelliteCommands.opcode(command), System.nanoTime() - begin);
+            } else {
+                SatelliteCommands.execute(fleet, command);
+            }
+            if (observer != null) {
+                observer.completed(shard, command, System.nanoTime() - submitted);
+            }
+            head++;
+            drained++;
+        }
+        if (drained > 0) {
+            ring.head = head; // one volatile write per batch frees the slots for producers
+        }
+        return drained;
+    }
+}
+
+// Load generator: java SatelliteCommandSystem pipeline-load [producers] [commandsPerProducer] [satellites]
+class SatelliteCommandLoad {
+    private static final int SAMPLES_PER_SHARD = 1 << 20;
+
+    static void run(int producers, int commandsPerProducer, int satellites) throws InterruptedException {
+        SatelliteFleet fleet = new SatelliteFleet(satellites);
+        int shards = Integer.highestOneBit(Runtime.getRuntime().availableProcessors());
+        // Per-shard latency reservoirs; each is written only by its shard's worker
+        long[][] samples = new long[shards][SAMPLES_PER_SHARD];
+        int[] counts = new int[samples.length];
+        SatelliteCommandPipeline.CommandObserver observer = (shard, command, latencyNanos) -> {
+            samples[shard][counts[shard]++ & (SAMPLES_PER_SHARD - 1)] = latencyNanos;
+        };
+
+        Thread[] threads = new Thread[producers];
+        long begin;
+        try (SatelliteCommandPipeline pipeline = new SatelliteCommandPipeline(fleet, shards, 1 << 16, 256, observer)) {
+            for (int p = 0; p < producers; p++) {
+                int seed = p;
+                threads[p] = new Thread(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    try {
+                        for (int i = 0; i < commandsPerProducer; i++) {
+                            int id = random.nextInt(satellites);
+                            byte opcode = (byte) (SatelliteCommands.OP_ROTATE + random.nextInt(4));
+                            pipeline.submit(SatelliteCommands.encode(opcode, id, (byte) random.nextInt(4)));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            begin = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        int total = 0;
+        for (int shard = 0; shard < samples.length; shard++) {
+            total += Math.min(counts[shard], SAMPLES_PER_SHARD);
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int shard = 0; shard < samples.length; shard++) {
+            int n = Math.min(counts[shard], SAMPLES_PER_SHARD);
+            System.arraycopy(samples[shard], 0, all, offset, n);
+            offset += n;
+        }
+        Arrays.sort(all);
+        long commands = (long) producers * commandsPerProducer;
+        System.out.printf("Producers: %d, shards: %d, commands: %,d%n", producers, samples.length, commands);
+        System.out.printf("Throughput: %,.0f commands/s%n", commands * 1e9 / elapsed);
+        System.out.printf("Latency p50: %,d ns, p99: %,d ns, p99.9: %,d ns, max: %,d ns%n",
+                all[all.length / 2], all[(int) (all.length * 0.99)], all[(int) (all.length * 0.999)], all[all.length - 1]);
+    }
+}
+
+// Non-blocking NIO server for binary command frames: [opcode:1][satellite id:4][argument:1], big-endian.
+// Frames are parsed in place from one reused direct buffer per connection and fed to the pipeline.
+class SatelliteCommandServer implements Closeable {
+    static final int FRAME_BYTES = 6;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final SatelliteCommandPipeline pipeline;
+    // Connections whose buffered frames are waiting for queue space; reads stay paused meanwhile
+    private final List<SelectionKey> paused = new ArrayList<>();
+    private final AtomicLong framesAccepted = new AtomicLong();
+    private volatile boolean running = true;
+
+    public SatelliteCommandServer(int port, SatelliteCommandPipeline pipeline) throws IOException {
+        this.pipeline = pipeline;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public long framesAccepted() {
+        return framesAccepted.get();
+    }
+
+    public void run() throws IOException {
+        while (running) {
+            selector.select(paused.isEmpty() ? 0 : 1);
+            retryPaused();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                } else if (key.isReadable()) {
+                    read(key);
+                }
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(BUFFER_BYTES));
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            key.cancel();
+            channel.close();
+            return;
+        }
+        if (!dispatch(buffer)) {
+            key.interestOps(0);
+            paused.add(key);
+        }
+    }
+
+    private void retryPaused() {
+        for (Iterator<SelectionKey> it = paused.iterator(); it.hasNext(); ) {
+            SelectionKey key = it.next();
+            if (!key.isValid()) {
+                it.remove();
+            } else if (dispatch((ByteBuffer) key.attachment())) {
+                key.interestOps(SelectionKey.OP_READ);
+                it.remove();
+            }
+        }
+    }
+
+    // Submits every complete frame in the buffer; returns false if a full queue stopped it early
+    private boolean dispatch(ByteBuffer buffer) {
+        buffer.flip();
+        boolean drained = true;
+        int accepted = 0;
+        while (buffer.remaining() >= FRAME_BYTES) {
+            int frame = buffer.position();
+            long command = SatelliteCommands.encode(buffer.get(frame), buffer.getInt(frame + 1), buffer.get(frame + 5));
+            if (!pipeline.trySubmit(command)) {
+                drained = false;
+                break;
+            }
+            buffer.position(frame + FRAME_BYTES);
+            accepted++;
+        }
+        buffer.compact();
+        framesAccepted.addAndGet(accepted);
+        return drained;
+    }
+}
+
+// Protocol load: java SatelliteCommandSystem protocol-load [connections] [framesPerConnection] [satellites]
+// Starts the server on an ephemeral localhost port and blasts binary frames at it from client threads.
+class SatelliteProtocolLoad {
+    static void run(int connections, int framesPerConnection, int satellites) throws IOException, InterruptedException {
+        SatelliteFleet fleet = new SatelliteFleet(satellites);
+        int shards = Integer.highestOneBit(Runtime.getRuntime().availableProcessors());
+        try (SatelliteCommandPipeline pipeline = new SatelliteCommandPipeline(fleet, shards, 1 << 16, 256, null)) {
+            SatelliteCommandServer server = new SatelliteCommandServer(0, pipeline);
+            Thread serverThread = new Thread(() -> {
+                try {
+                    server.run();
+                } catch (IOException e) {
+                    System.out.println("Server failed: " + e.getMessage());
+                }
+            }, "satellite-server");
+            serverThread.start();
+
+            int port = server.getPort();
+            Thread[] clients = new Thread[connections];
+            for (int c = 0; c < connections; c++) {
+                int seed = c;
+                clients[c] = new Thread(() -> sendFrames(port, framesPerConnection, satellites, seed));
+            }
+            long begin = System.nanoTime();
+            for (Thread client : clients) {
+                client.start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            long expected = (long) connections * framesPerConnection;
+            while (server.framesAccepted() < expected) {
+                Thread.sleep(1);
+            }
+            long elapsed = System.nanoTime() - begin;
+            server.close();
+            serverThread.join();
+            System.out.printf("Connections: %d, frames: %,d, throughput: %,.0f commands/s (%,.0f per minute)%n",
+                    connections, expected, expected * 1e9 / elapsed, expected * 60e9 / elapsed);
+        }
+    }
+
+    private static void sendFrames(int port, int frames, int satellites, int seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SatelliteCommandServer.FRAME_BYTES * 8192);
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            for (int sent = 0; sent < frames; ) {
+                buffer.clear();
+                while (buffer.remaining() >= SatelliteCommandServer.FRAME_BYTES && sent < frames) {
+                    buffer.put((byte) (SatelliteCommands.OP_ROTATE + random.nextInt(4)))
+                            .putInt(random.nextInt(satellites))
+                            .put((byte) random.nextInt(4));
+                    sent++;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Client failed: " + e.getMessage());
+        }
+    }
 }
 
 public class SatelliteCommandSystem {
-    public static void main(String[] args) {
-        Satellite satellite = new Satellite();
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length > 0 && args[0].equals("fleet-bench")) {
+            SatelliteFleetBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("telemetry-bench")) {
+            int satellites = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+            int slots = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+            SatelliteFleetBenchmark.runWithTelemetry(satellites, slots);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("pipeline-load")) {
+            int producers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int commandsPerProducer = args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000;
+            int satellites = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+            SatelliteCommandLoad.run(producers, commandsPerProducer, satellites);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("serve")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+            int satellites = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+            SatelliteFleet fleet = new SatelliteFleet(satellites);
+            int shards = Integer.highestOneBit(Runtime.getRuntime().availableProcessors());
+            CommandMetrics metrics = new CommandMetrics();
+            metrics.exportPeriodically(Paths.get(System.getProperty("java.io.tmpdir"), "satellite-metrics.prom"), 10, TimeUnit.SECONDS);
+            try (SatelliteCommandPipeline pipeline = new SatelliteCommandPipeline(fleet, shards, 1 << 16, 256, null, metrics)) {
+                SatelliteCommandServer server = new SatelliteCommandServer(port, pipeline);
+                System.out.println("Listening for command frames on localhost:" + server.getPort());
+                server.run();
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("metrics-bench")) {
+            CommandMetricsBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("protocol-load")) {
+            int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int framesPerConnection = args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000;
+            int satellites = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+            SatelliteProtocolLoad.run(connections, framesPerConnection, satellites);
+            return;
+        }
+
+        Path telemetryFile = Paths.get(System.getProperty("java.io.tmpdir"), "satellite-telemetry.dat");
+        SatelliteTelemetry telemetry = new SatelliteTelemetry(telemetryFile, 1, 4096);
+        Satellite satellite = new Satellite(telemetry, 0);
+        CommandMetrics metrics = new CommandMetrics();
+        metrics.exportPeriodically(Paths.get(System.getProperty("java.io.tmpdir"), "satellite-metrics.prom"), 10, TimeUnit.SECONDS);
         Scanner scanner = new Scanner(System.in);
 
         while (true) {
             System.out.print("> ");
-            String command = scanner.nextLine();
-            String[] parts = command.split(" ");
-
-            switch (parts[0]) {
-                case "rotate":
-                    if (parts.length > 1) {
-                        satellite.rotate(parts[1]);
-                    } else {
-                        System.out.println("Please specify a direction to rotate.");
-                    }
-                    break;
-                case "activatePanels":
-                    satellite.activatePanels();
-                    break;
-                case "deactivatePanels":
-                    satellite.deactivatePanels();
-                    break;
-                case "collectData":
-                    satellite.collectData();
-                    break;
-                case "status":
-                    satellite.displayStatus();
-                    break;
-                case "exit":
-                    scanner.close();
-                    return;
-                default:
-                    System.out.println("Unknown command.");
+            String line = scanner.nextLine();
+            if (line.equals("exit") || line.startsWith("exit ")) {
+                scanner.close();
+                telemetry.close();
+                return;
+            }
+            // Matched without allocating, like parseText; only the telemetry line itself is split
+            if (line.equals("telemetry") || line.startsWith("telemetry ")) {
+                // telemetry [seconds]: collected data over a positive window, 60 s by default
+                String[] parts = line.trim().split("\\s+");
+                int windowSeconds;
+                try {
+                    windowSeconds = parts.length > 1 ? Integer.parseInt(parts[1]) : 60;
+                } catch (NumberFormatException e) {
+                    windowSeconds = 0;
+                }
+                if (windowSeconds <= 0 || parts.length > 2) {
+                    System.out.println("Usage: telemetry [seconds], with seconds a positive whole number.");
+                } else {
+                    satellite.displayTelemetry(windowSeconds);
+                }
+                continue;
+            }
+            if (line.equals("metrics")) {
+                metrics.display();
+                continue;
+            }
+
+            long command = SatelliteCommands.parseText(line);
+            if (command == SatelliteCommands.MISSING_DIRECTION) {
+                System.out.println("Please specify a direction to rotate.");
+            } else if (command == SatelliteCommands.UNKNOWN_COMMAND) {
+                System.out.println("Unknown command.");
+            } else {
+                long begin = System.nanoTime();
+                satellite.execute(command);
+                metrics.record(SatelliteCommands.opcode(command), System.nanoTime() - begin);
             }
         }
     }
@@ -1,155 +1,2638 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32;
 
 // Task class with Builder Pattern
 class Task {
     private String description;
     private boolean completed;
     private String dueDate;
+    // dueDate as an epoch day, or NO_DUE_DAY when it is missing or not a YYYY-MM-DD date
+    private final int dueDay;
+    // Insertion sequence, assigned by TaskManager
+    private long id;
+    // Wheel entry while a reminder is scheduled for this task
+    private ReminderWheel.Reminder reminder;
+    // Search index generation holding this task's postings, 0 for none
+    private int searchGeneration;
+
+    static final int NO_DUE_DAY = Integer.MIN_VALUE;
 
     private Task(TaskBuilder builder) {
         this.description = builder.description;
         this.completed = builder.completed;
         this.dueDate = builder.dueDate;
+        this.dueDay = parseDueDay(builder.dueDate);
+    }
+
+    // Reads YYYY-MM-DD by hand; LocalDate.parse goes through a formatter, which dominates bulk loads
+    private static int parseDueDay(String dueDate) {
+        if (dueDate == null || dueDate.length() != 10 || dueDate.charAt(4) != '-' || dueDate.charAt(7) != '-') {
+            return NO_DUE_DAY;
+        }
+        int year = digits(dueDate, 0, 4);
+        int month = digits(dueDate, 5, 7);
+        int day = digits(dueDate, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return NO_DUE_DAY;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_DUE_DAY;
+        }
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    public static class TaskBuilder {
+        private String description;
+        private boolean completed = false; // default
+        private String dueDate;
+
+        public TaskBuilder(String description) {
+            this.description = description;
+        }
+
+        public TaskBuilder setDueDate(String dueDate) {
+            this.dueDate = dueDate;
+            return this;
+        }
+
+        public TaskBuilder setCompleted(boolean completed) {
+            this.completed = completed;
+            return this;
+        }
+
+        public Task build() {
+            return new Task(this);
+        }
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public String getDueDate() {
+        return dueDate;
+    }
+
+    public int getDueDay() {
+        return dueDay;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
+    ReminderWheel.Reminder getReminder() {
+        return reminder;
+    }
+
+    void setReminder(ReminderWheel.Reminder reminder) {
+        this.reminder = reminder;
+    }
+
+    int getSearchGeneration() {
+        return searchGeneration;
+    }
+
+    void setSearchGeneration(int searchGeneration) {
+        this.searchGeneration = searchGeneration;
+    }
+
+    public void markCompleted() {
+        this.completed = true;
+    }
+
+    public void markPending() {
+        this.completed = false;
+    }
+
+    // Same text as toString, written piecewise so paged views do not build a string per task
+    public void appendTo(Appendable out) throws IOException {
+        out.append(description).append(" - ").append(completed ? "Completed" : "Pending");
+        if (dueDate != null) {
+            out.append(", Due: ").append(dueDate);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description + " - " + (completed ? "Completed" : "Pending") + (dueDate != null ? ", Due: " + dueDate : "");
+    }
+}
+
+// One reversible change to the task list. Edits hold only the tasks they touched, so history costs
+// O(1) per single-task operation instead of a copy of the whole list.
+interface TaskEdit {
+    void undo(TaskManager manager);
+
+    void redo(TaskManager manager);
+
+    List<Task> getTasks();
+}
+
+class AddTaskEdit implements TaskEdit {
+    private final Task task;
+
+    AddTaskEdit(Task task) {
+        this.task = task;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return Collections.singletonList(task);
+    }
+
+    @Override
+    public void undo(TaskManager manager) {
+        manager.remove(task);
+    }
+
+    @Override
+    public void redo(TaskManager manager) {
+        manager.insert(task);
+    }
+}
+
+class CompleteTaskEdit implements TaskEdit {
+    private final Task task;
+
+    CompleteTaskEdit(Task task) {
+        this.task = task;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return Collections.singletonList(task);
+    }
+
+    @Override
+    public void undo(TaskManager manager) {
+        manager.setCompleted(task, false);
+    }
+
+    @Override
+    public void redo(TaskManager manager) {
+        manager.setCompleted(task, true);
+    }
+}
+
+class DeleteTaskEdit implements TaskEdit {
+    private final List<Task> deleted;
+
+    DeleteTaskEdit(List<Task> deleted) {
+        this.deleted = deleted;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return deleted;
+    }
+
+    @Override
+    public void undo(TaskManager manager) {
+        deleted.forEach(manager::insert);
+    }
+
+    @Override
+    public void redo(TaskManager manager) {
+        deleted.forEach(manager::remove);
+    }
+}
+
+// Owns the task list and its undo/redo history
+class TaskManager {
+    static final int DEFAULT_HISTORY_LIMIT = 1000;
+    static final int PAGE_SIZE = 20;
+    // Page cursors: before the first task, and past the last one
+    static final long FIRST_PAGE = -1;
+    static final long END_OF_VIEW = Long.MAX_VALUE;
+
+    // Keyed by insertion sequence, so an undone delete goes back to its old place in O(log n)
+    private final TreeMap<Long, Task> tasks = new TreeMap<>();
+    // The two partitions of tasks, also keyed by insertion sequence, so a view page is a tailMap walk
+    private final TreeMap<Long, Task> completedTasks = new TreeMap<>();
+    private final TreeMap<Long, Task> pendingTasks = new TreeMap<>();
+    // Tasks sharing a description, in insertion order
+    private final Map<String, List<Task>> byDescription = new HashMap<>();
+    // Tasks with a due date, and the pending subset, keyed by dueKey so ranges come out in due order
+    private final TreeMap<Long, Task> byDue = new TreeMap<>();
+    private final TreeMap<Long, Task> pendingByDue = new TreeMap<>();
+    private final TaskSearchIndex searchIndex = new TaskSearchIndex();
+    private long nextId;
+    // Newest edit first; once the limit is reached the oldest edit is forgotten
+    private final ArrayDeque<TaskEdit> undoStack = new ArrayDeque<>();
+    private final ArrayDeque<TaskEdit> redoStack = new ArrayDeque<>();
+    private final int historyLimit;
+    // Receives every applied change once attached; null when the state is not durable
+    private TaskJournal journal;
+    // Holds a reminder for every pending task with a due date; null when reminders are off
+    private ReminderScheduler reminders;
+
+    public TaskManager() {
+        this(DEFAULT_HISTORY_LIMIT);
+    }
+
+    public TaskManager(int historyLimit) {
+        this.historyLimit = historyLimit;
+    }
+
+    // Changes are synchronized so a background journal snapshot sees a consistent state
+    public synchronized void addTask(Task task) {
+        task.setId(nextId++);
+        insert(task);
+        record(new AddTaskEdit(task));
+        if (journal != null) {
+            journal.add(task);
+        }
+    }
+
+    public synchronized void markCompleted(String description) {
+        List<Task> matches = byDescription.get(description);
+        if (matches != null) {
+            Task task = matches.get(0);
+            if (!task.isCompleted()) {
+                setCompleted(task, true);
+                record(new CompleteTaskEdit(task));
+                if (journal != null) {
+                    journal.complete(description);
+                }
+            }
+        }
+    }
+
+    public synchronized void deleteTask(String description) {
+        List<Task> matches = byDescription.get(description);
+        if (matches != null) {
+            List<Task> deleted = new ArrayList<>(matches);
+            deleted.forEach(this::remove);
+            record(new DeleteTaskEdit(deleted));
+            if (journal != null) {
+                journal.delete(description);
+            }
+        }
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public List<Task> getTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    // Tasks with this exact description, in insertion order
+    public List<Task> findByDescription(String description) {
+        return new ArrayList<>(byDescription.getOrDefault(description, Collections.emptyList()));
+    }
+
+    // Tasks whose description has every term of the query; "term*" matches by prefix
+    public synchronized List<Task> search(String query, int limit) {
+        return searchIndex.search(query, limit, tasks::get);
+    }
+
+    long searchFootprintBytes() {
+        return searchIndex.footprintBytes();
+    }
+
+    // Tasks due from first to last inclusive, in due order
+    public List<Task> dueBetween(LocalDate first, LocalDate last) {
+        return new ArrayList<>(byDue.subMap(dueKey(first.toEpochDay(), 0), true, dueKey(last.toEpochDay() + 1, 0), false).values());
+    }
+
+    // Tasks due Monday to Sunday of the week containing today
+    public List<Task> dueThisWeek(LocalDate today) {
+        LocalDate monday = today.minusDays(today.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+        return dueBetween(monday, monday.plusDays(6));
+    }
+
+    // Pending tasks due before today, oldest first
+    public List<Task> overduePending(LocalDate today) {
+        return new ArrayList<>(pendingByDue.headMap(dueKey(today.toEpochDay(), 0), false).values());
+    }
+
+    public int countTasks(String filter) {
+        TreeMap<Long, Task> view = partition(filter);
+        return view == null ? 0 : view.size();
+    }
+
+    // Writes the tasks of an "all", "completed" or "pending" view that come after cursor, at most
+    // pageSize of them, and returns the cursor of the next page or END_OF_VIEW. Costs O(log n + pageSize).
+    public long writePage(String filter, long cursor, int pageSize, Writer out) throws IOException {
+        TreeMap<Long, Task> view = partition(filter);
+        if (view == null) {
+            throw new IllegalArgumentException("Unknown view: " + filter);
+        }
+        int written = 0;
+        long last = cursor;
+        for (Task task : view.tailMap(cursor, false).values()) {
+            if (written == pageSize) {
+                return last;
+            }
+            task.appendTo(out);
+            out.write(System.lineSeparator());
+            last = task.getId();
+            written++;
+        }
+        return END_OF_VIEW;
+    }
+
+    // Prints one page of a view through a buffered writer and returns the next cursor
+    public long viewPage(String filter, long cursor) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        try {
+            long next = writePage(filter, cursor, PAGE_SIZE, out);
+            out.flush();
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TreeMap<Long, Task> partition(String filter) {
+        switch (filter) {
+            case "all": return tasks;
+            case "completed": return completedTasks;
+            case "pending": return pendingTasks;
+            default: return null;
+        }
+    }
+
+    public void viewTasks(String filter) {
+        switch (filter) {
+            case "all":
+            case "completed":
+            case "pending":
+                for (long cursor = FIRST_PAGE; cursor != END_OF_VIEW; ) {
+                    cursor = viewPage(filter, cursor);
+                }
+                break;
+            case "due-this-week":
+                dueThisWeek(LocalDate.now()).forEach(System.out::println);
+                break;
+            case "overdue":
+                overduePending(LocalDate.now()).forEach(System.out::println);
+                break;
+            default:
+                System.out.println("Invalid filter. Use 'all', 'completed', 'pending', 'due-this-week' or 'overdue'.");
+        }
+    }
+
+    public synchronized void undo() {
+        TaskEdit edit = undoStack.pollFirst();
+        if (edit == null) {
+            System.out.println("No actions to undo.");
+            return;
+        }
+        edit.undo(this);
+        redoStack.addFirst(edit);
+        if (journal != null) {
+            journal.undo();
+        }
+    }
+
+    public synchronized void redo() {
+        TaskEdit edit = redoStack.pollFirst();
+        if (edit == null) {
+            System.out.println("No actions to redo.");
+            return;
+        }
+        edit.redo(this);
+        undoStack.addFirst(edit);
+        if (journal != null) {
+            journal.redo();
+        }
+    }
+
+    // Journal support: the journal attaches after recovery, and reads the state under this lock
+
+    synchronized void attachJournal(TaskJournal journal) {
+        this.journal = journal;
+    }
+
+    // Attach before adding or restoring tasks, so every pending task with a due date gets a reminder
+    synchronized void attachReminders(ReminderScheduler reminders) {
+        this.reminders = reminders;
+    }
+
+    long getNextId() {
+        return nextId;
+    }
+
+    Task[] taskArray() {
+        return tasks.values().toArray(new Task[0]);
+    }
+
+    // Newest edit first
+    List<TaskEdit> undoHistory() {
+        return new ArrayList<>(undoStack);
+    }
+
+    List<TaskEdit> redoHistory() {
+        return new ArrayList<>(redoStack);
+    }
+
+    // Inserts a task that already has its id and completion flag
+    void restoreTask(Task task) {
+        insert(task);
+    }
+
+    void restoreHistory(long nextId, List<TaskEdit> undo, List<TaskEdit> redo) {
+        this.nextId = nextId;
+        undoStack.clear();
+        undoStack.addAll(undo);
+        redoStack.clear();
+        redoStack.addAll(redo);
+    }
+
+    // A new edit makes the redo history unreachable
+    private void record(TaskEdit edit) {
+        redoStack.clear();
+        undoStack.addFirst(edit);
+        if (undoStack.size() > historyLimit) {
+            undoStack.pollLast();
+        }
+    }
+
+    // Primitive changes shared by the operations above and by the edits' undo and redo
+
+    void insert(Task task) {
+        tasks.put(task.getId(), task);
+        (task.isCompleted() ? completedTasks : pendingTasks).put(task.getId(), task);
+        List<Task> matches = byDescription.computeIfAbsent(task.getDescription(), description -> new ArrayList<>(1));
+        int position = Collections.binarySearch(matches, task, (a, b) -> Long.compare(a.getId(), b.getId()));
+        matches.add(-position - 1, task);
+        searchIndex.add(task);
+        if (task.getDueDay() != Task.NO_DUE_DAY) {
+            byDue.put(dueKey(task), task);
+            if (!task.isCompleted()) {
+                pendingByDue.put(dueKey(task), task);
+                if (reminders != null) {
+                    reminders.schedule(task);
+                }
+            }
+        }
+    }
+
+    void remove(Task task) {
+        tasks.remove(task.getId());
+        (task.isCompleted() ? completedTasks : pendingTasks).remove(task.getId());
+        List<Task> matches = byDescription.get(task.getDescription());
+        matches.remove(task);
+        if (matches.isEmpty()) {
+            byDescription.remove(task.getDescription());
+        }
+        searchIndex.remove(task);
+        if (searchIndex.needsRebuild()) {
+            searchIndex.rebuild(tasks.values());
+        }
+        if (task.getDueDay() != Task.NO_DUE_DAY) {
+            byDue.remove(dueKey(task));
+            pendingByDue.remove(dueKey(task));
+            if (reminders != null) {
+                reminders.cancel(task);
+            }
+        }
+    }
+
+    void setCompleted(Task task, boolean completed) {
+        if (completed) {
+            task.markCompleted();
+            pendingTasks.remove(task.getId());
+            completedTasks.put(task.getId(), task);
+        } else {
+            task.markPending();
+            completedTasks.remove(task.getId());
+            pendingTasks.put(task.getId(), task);
+        }
+        if (task.getDueDay() != Task.NO_DUE_DAY) {
+            if (completed) {
+                pendingByDue.remove(dueKey(task));
+                if (reminders != null) {
+                    reminders.cancel(task);
+                }
+            } else {
+                pendingByDue.put(dueKey(task), task);
+                if (reminders != null) {
+                    reminders.schedule(task);
+                }
+            }
+        }
+    }
+
+    // Orders by due day, then insertion; ids below 2^40 and days within +-2^23 (about 23,000 years)
+    private static long dueKey(long dueDay, long id) {
+        return (dueDay << 40) | id;
+    }
+
+    private static long dueKey(Task task) {
+        return dueKey(task.getDueDay(), task.getId());
+    }
+}
+
+// Times adds, completes, deletes and a full undo and redo of them on a large list, and checks that
+// undo restores the completion flag: java ToDoListApp undo-bench [tasks]
+class UndoBenchmark {
+    static void run(int count) {
+        TaskManager manager = new TaskManager(3 * count);
+        long begin = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            manager.addTask(new Task.TaskBuilder("task " + i).build());
+        }
+        report("add", count, begin);
+
+        begin = System.nanoTime();
+        int completes = Math.min(1000, count / 2);
+        for (int i = 0; i < completes; i++) {
+            manager.markCompleted("task " + (count - 1 - 2 * i));
+        }
+        report("complete", completes, begin);
+
+        begin = System.nanoTime();
+        int deletes = Math.min(1000, count);
+        for (int i = 0; i < deletes; i++) {
+            manager.deleteTask("task " + (count - 1 - i));
+        }
+        report("delete", deletes, begin);
+
+        int edits = count + completes + deletes;
+        long heapBefore = usedHeap();
+        begin = System.nanoTime();
+        for (int i = 0; i < edits; i++) {
+            manager.undo();
+        }
+        report("undo", edits, begin);
+        if (manager.size() != 0) {
+            throw new IllegalStateException("Undo left " + manager.size() + " tasks.");
+        }
+        begin = System.nanoTime();
+        for (int i = 0; i < edits; i++) {
+            manager.redo();
+        }
+        report("redo", edits, begin);
+        System.out.printf("Heap growth across undo and redo: %,d KB%n", (usedHeap() - heapBefore) / 1024);
+
+        TaskManager small = new TaskManager(2);
+        Task task = new Task.TaskBuilder("check").build();
+        small.addTask(task);
+        small.markCompleted("check");
+        small.undo();
+        if (task.isCompleted()) {
+            throw new IllegalStateException("Undo did not restore the completion flag.");
+        }
+        small.redo();
+        if (!task.isCompleted()) {
+            throw new IllegalStateException("Redo did not reapply the completion flag.");
+        }
+        System.out.println("Undo restores the completion flag.");
+    }
+
+    static void report(String operation, int count, long begin) {
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%-26s %,9d ops, %,8.0f ns/op%n", operation, count, (double) elapsed / Math.max(1, count));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
+
+// Times lookups and due-date queries at growing list sizes, so a per-op cost that grows with the list
+// shows up at once, then checks every index against a full scan after random edits, undos and redos:
+// java ToDoListApp index-bench [maxTasks]
+class TaskIndexBenchmark {
+    private static final int OPS = 10_000;
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    static void run(int maxTasks) {
+        for (int count = 10_000; count <= maxTasks; count *= 10) {
+            System.out.printf("%,d tasks%n", count);
+            SplittableRandom random = new SplittableRandom(count);
+            TaskManager manager = new TaskManager();
+            // About 20 tasks due per day whatever the list size, so every query returns a similar k
+            int days = count / 20;
+            for (int i = 0; i < count; i++) {
+                manager.addTask(randomTask(random, "task " + i, days));
+            }
+            long begin = System.nanoTime();
+            for (int i = 0; i < OPS; i++) {
+                manager.markCompleted("task " + random.nextInt(count));
+            }
+            UndoBenchmark.report("  complete", OPS, begin);
+            begin = System.nanoTime();
+            long found = 0;
+            for (int i = 0; i < OPS; i++) {
+                LocalDate day = TODAY.plusDays(random.nextInt(-days / 2, days / 2));
+                found += manager.dueBetween(day, day).size();
+            }
+            UndoBenchmark.report("  due on one day", OPS, begin);
+            begin = System.nanoTime();
+            for (int i = 0; i < OPS; i++) {
+                manager.deleteTask("task " + random.nextInt(count));
+            }
+            UndoBenchmark.report("  delete", OPS, begin);
+            System.out.printf("  %,d tasks due on the sampled days, %,d overdue and pending%n",
+                    found, manager.overduePending(TODAY).size());
+        }
+        check(new SplittableRandom(7));
+        System.out.println("Indexes and paged views matched a full scan after random edits, undos and redos.");
+    }
+
+    // One in ten tasks has no due date; the rest fall within days around TODAY
+    private static Task randomTask(SplittableRandom random, String description, int days) {
+        String dueDate = random.nextInt(10) == 0 ? null : TODAY.plusDays(random.nextInt(-days / 2, days / 2)).toString();
+        return new Task.TaskBuilder(description).setDueDate(dueDate).build();
+    }
+
+    private static void check(SplittableRandom random) {
+        TaskManager manager = new TaskManager(50);
+        PrintStream console = System.out;
+        // Undo and redo report an empty history on the console
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int step = 0; step < 20_000; step++) {
+                String description = "task " + random.nextInt(200);
+                switch (random.nextInt(5)) {
+                    case 0:
+                    case 1:
+                        manager.addTask(randomTask(random, description, 730));
+                        break;
+                    case 2:
+                        manager.markCompleted(description);
+                        break;
+                    case 3:
+                        manager.deleteTask(description);
+                        break;
+                    default:
+                        if (random.nextBoolean()) {
+                            manager.undo();
+                        } else {
+                            manager.redo();
+                        }
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+        List<Task> live = manager.getTasks();
+        for (int i = 0; i < 200; i++) {
+            String description = "task " + i;
+            List<Task> expected = new ArrayList<>();
+            for (Task task : live) {
+                if (task.getDescription().equals(description)) {
+                    expected.add(task);
+                }
+            }
+            if (!expected.equals(manager.findByDescription(description))) {
+                throw new IllegalStateException("Description index differs from a full scan.");
+            }
+        }
+        List<Task> expectedDue = new ArrayList<>();
+        List<Task> expectedOverdue = new ArrayList<>();
+        for (Task task : live) {
+            if (task.getDueDay() != Task.NO_DUE_DAY) {
+                expectedDue.add(task);
+                if (!task.isCompleted() && task.getDueDay() < TODAY.toEpochDay()) {
+                    expectedOverdue.add(task);
+                }
+            }
+        }
+        Comparator<Task> dueOrder = Comparator.comparingInt(Task::getDueDay).thenComparingLong(Task::getId);
+        expectedDue.sort(dueOrder);
+        expectedOverdue.sort(dueOrder);
+        if (!expectedOverdue.equals(manager.overduePending(TODAY))) {
+            throw new IllegalStateException("Overdue index differs from a full scan.");
+        }
+        for (boolean completed : new boolean[] { true, false }) {
+            StringBuilder expected = new StringBuilder();
+            for (Task task : live) {
+                if (task.isCompleted() == completed) {
+                    expected.append(task).append(System.lineSeparator());
+                }
+            }
+            StringWriter pages = new StringWriter();
+            String filter = completed ? "completed" : "pending";
+            try {
+                for (long cursor = TaskManager.FIRST_PAGE; cursor != TaskManager.END_OF_VIEW; ) {
+                    cursor = manager.writePage(filter, cursor, 7, pages);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!expected.toString().equals(pages.toString())) {
+                throw new IllegalStateException("Paged " + filter + " view differs from a full scan.");
+            }
+        }
+        if (!expectedDue.equals(manager.dueBetween(TODAY.minusDays(400), TODAY.plusDays(400)))) {
+            throw new IllegalStateException("Due index differs from a full scan.");
+        }
+    }
+}
+
+// Times the first page of the pending view against the old filter-everything view at growing list
+// sizes: java ToDoListApp page-bench [maxTasks]
+class TaskPageBenchmark {
+    private static final int ROUNDS = 1_000;
+
+    static void run(int maxTasks) throws IOException {
+        Writer sink = Writer.nullWriter();
+        for (int count = 10_000; count <= maxTasks; count *= 10) {
+            TaskManager manager = new TaskManager();
+            for (int i = 0; i < count; i++) {
+                manager.addTask(new Task.TaskBuilder("task " + i).build());
+            }
+            // Complete the older half, so pending tasks start in the middle of the list
+            for (int i = 0; i < count / 2; i++) {
+                manager.markCompleted("task " + i);
+            }
+            long begin = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                manager.writePage("pending", TaskManager.FIRST_PAGE, TaskManager.PAGE_SIZE, sink);
+            }
+            long paged = System.nanoTime() - begin;
+            List<Task> all = manager.getTasks();
+            int rounds = Math.max(1, ROUNDS / (count / 10_000));
+            begin = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                for (Task task : all) {
+                    if (!task.isCompleted()) {
+                        sink.write(task.toString());
+                    }
+                }
+            }
+            long scanned = System.nanoTime() - begin;
+            System.out.printf("%,9d tasks: pending page 1 %,8.0f ns, full filtered view %,12.0f ns%n",
+                    count, (double) paged / ROUNDS, (double) scanned / rounds);
+        }
+    }
+}
+
+// Durable TaskManager state: every applied add, complete, delete, undo and redo is appended as a
+// checksummed record to a memory-mapped journal. A background thread fsyncs in batches and, once the
+// journal passes a size threshold, snapshots the tasks and undo history so recovery replays only the
+// tail. Snapshots are read back through a memory mapping, so they must stay under 2 GB.
+class TaskJournal implements Closeable {
+    private static final byte OP_ADD = 1;
+    private static final byte OP_COMPLETE = 2;
+    private static final byte OP_DELETE = 3;
+    private static final byte OP_UNDO = 4;
+    private static final byte OP_REDO = 5;
+
+    private static final byte EDIT_ADD = 1;
+    private static final byte EDIT_COMPLETE = 2;
+    private static final byte EDIT_DELETE = 3;
+
+    private static final int SNAPSHOT_MAGIC = 0x54445332; // "TDS2"
+    private static final int SEGMENT_MAGIC = 0x54444a31; // "TDJ1"
+    // Segment header: [magic:int][generation:long]
+    private static final int SEGMENT_HEADER_BYTES = 12;
+    private static final int INITIAL_SEGMENT_BYTES = 16 << 20;
+
+    private final Path journalFile;
+    private final Path rotatedJournalFile;
+    private final Path snapshotFile;
+    private final TaskManager manager;
+    private final long compactThresholdBytes;
+    private final Thread flusher;
+    private final Object compacting = new Object();
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private final CRC32 crc = new CRC32();
+    // Records are logical (an ADD replayed twice adds two tasks), so every segment carries a generation
+    // and the snapshot names the last generation it covers; recovery skips segments at or below it
+    private long generation;
+    // Journal offset of the current segment's first byte; offsets keep growing across rotations, so a
+    // waiter's target stays meaningful after compaction starts a new segment
+    private long segmentBase;
+    // Bytes in the current segment, header included
+    private long written;
+    // Journal offset up to which everything has been fsynced
+    private long durable;
+    private boolean closed;
+
+    private TaskJournal(Path directory, TaskManager manager, long flushIntervalMillis, long compactThresholdBytes) {
+        this.journalFile = directory.resolve("tasks.journal");
+        this.rotatedJournalFile = directory.resolve("tasks.journal.1");
+        this.snapshotFile = directory.resolve("tasks.snap");
+        this.manager = manager;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.flusher = new Thread(() -> flushLoop(flushIntervalMillis), "task-journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    // Loads the snapshot, replays the journal tail into an empty manager, compacts, and starts journaling
+    public static TaskJournal open(Path directory, TaskManager manager, long flushIntervalMillis, long compactThresholdBytes)
+            throws IOException {
+        Files.createDirectories(directory);
+        TaskJournal journal = new TaskJournal(directory, manager, flushIntervalMillis, compactThresholdBytes);
+        // Recovered state is snapshotted before the old journal segments are discarded, unless the
+        // snapshot alone already holds it
+        if (journal.recover()) {
+            journal.writeSnapshot(journal.capture(journal.generation));
+        }
+        journal.openSegment();
+        Files.deleteIfExists(journal.rotatedJournalFile);
+        manager.attachJournal(journal);
+        journal.flusher.start();
+        return journal;
+    }
+
+    public void add(Task task) {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        byte[] dueDate = task.getDueDate() == null ? null : task.getDueDate().getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer record = begin(OP_ADD, 1 + 4 + description.length + 4 + (dueDate == null ? 0 : dueDate.length));
+            record.put((byte) (task.isCompleted() ? 1 : 0));
+            putBytes(record, description);
+            putBytes(record, dueDate);
+            commit(record);
+        }
+    }
+
+    public void complete(String description) {
+        logDescription(OP_COMPLETE, description);
+    }
+
+    public void delete(String description) {
+        logDescription(OP_DELETE, description);
+    }
+
+    public synchronized void undo() {
+        commit(begin(OP_UNDO, 0));
+    }
+
+    public synchronized void redo() {
+        commit(begin(OP_REDO, 0));
+    }
+
+    // Blocks until everything appended so far has been fsynced by a batch
+    public synchronized void awaitDurable() throws InterruptedException {
+        long target = segmentBase + written;
+        notifyAll();
+        while (durable < target && !closed) {
+            wait();
+        }
+    }
+
+    // Bytes in the live segment
+    public synchronized long size() {
+        return written;
+    }
+
+    // Rotates the journal aside and copies the state at that exact point under the manager's lock, so
+    // the snapshot and the new journal line up; the snapshot file is written after the lock is released.
+    // A second rotation before the snapshot would overwrite the rotated segment, so compactions run one
+    // at a time.
+    public void compact() throws IOException {
+        synchronized (compacting) {
+            Checkpoint checkpoint;
+            synchronized (manager) {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    segment.force();
+                    durable = segmentBase + written;
+                    notifyAll();
+                    channel.truncate(written);
+                    channel.close();
+                    Files.move(journalFile, rotatedJournalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    openSegment();
+                }
+                checkpoint = capture(generation - 1);
+            }
+            writeSnapshot(checkpoint);
+            Files.deleteIfExists(rotatedJournalFile);
+        }
+    }
+
+    // Waits for a compaction in progress, so no snapshot is written after close returns
+    @Override
+    public void close() throws IOException {
+        synchronized (compacting) {
+            synchronized (manager) {
+                manager.attachJournal(null);
+            }
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                segment.force();
+                durable = segmentBase + written;
+                channel.truncate(written);
+                channel.close();
+                // Wakes the flusher, which then exits; it is not interrupted, since that would close the
+                // channel of a snapshot it may be writing
+                notifyAll();
+            }
+        }
+    }
+
+    private void flushLoop(long flushIntervalMillis) {
+        try {
+            while (true) {
+                long segmentBytes;
+                synchronized (this) {
+                    wait(flushIntervalMillis);
+                    if (closed) {
+                        return;
+                    }
+                    segmentBytes = written;
+                    if (durable < segmentBase + segmentBytes) {
+                        segment.force();
+                        durable = segmentBase + segmentBytes;
+                        notifyAll();
+                    }
+                }
+                if (segmentBytes > compactThresholdBytes) {
+                    compact();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Task journal flush failed: " + e.getMessage());
+        }
+    }
+
+    private void logDescription(byte op, String description) {
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer record = begin(op, 4 + bytes.length);
+            putBytes(record, bytes);
+            commit(record);
+        }
+    }
+
+    // Record layout: [length:int][crc32:int][op:byte][payload]; a zero length marks the end of the journal
+    private ByteBuffer begin(byte op, int payloadBytes) {
+        int recordBytes = 8 + 1 + payloadBytes;
+        if (segment.remaining() < recordBytes + 4) {
+            growSegment(recordBytes + 4);
+        }
+        ByteBuffer record = segment.slice();
+        record.putInt(1 + payloadBytes).putInt(0).put(op);
+        return record;
+    }
+
+    private void commit(ByteBuffer record) {
+        int length = record.position();
+        crc.reset();
+        crc.update(record.duplicate().position(8).limit(length));
+        record.putInt(4, (int) crc.getValue());
+        segment.position(segment.position() + length);
+        written += length;
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SEGMENT_BYTES);
+        segment.putInt(SEGMENT_MAGIC).putLong(++generation);
+        // Only reached once the previous segment has been forced, so durable already covers it
+        segmentBase += written;
+        written = SEGMENT_HEADER_BYTES;
+    }
+
+    private void growSegment(int needed) {
+        try {
+            segment.force();
+            long capacity = Math.max((long) segment.capacity() * 2, written + needed);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            segment.position((int) written);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow task journal", e);
+        }
+    }
+
+    // The live tasks with their flags, plus the history already encoded, since history tasks that are
+    // not live could otherwise change before the snapshot is written
+    private static final class Checkpoint {
+        // Last journal generation whose records the checkpoint already reflects
+        final long generation;
+        final long nextId;
+        final Task[] tasks;
+        final boolean[] completed;
+        final byte[] history;
+
+        Checkpoint(long generation, long nextId, Task[] tasks, boolean[] completed, byte[] history) {
+            this.generation = generation;
+            this.nextId = nextId;
+            this.tasks = tasks;
+            this.completed = completed;
+            this.history = history;
+        }
+    }
+
+    // Caller holds the manager's lock, or the manager is not shared yet
+    private Checkpoint capture(long coveredGeneration) throws IOException {
+        Task[] tasks = manager.taskArray();
+        boolean[] completed = new boolean[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            completed[i] = tasks[i].isCompleted();
+        }
+        ByteArrayOutputStream history = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(history);
+        for (List<TaskEdit> edits : Arrays.asList(manager.undoHistory(), manager.redoHistory())) {
+            data.writeInt(edits.size());
+            for (TaskEdit edit : edits) {
+                data.writeByte(edit instanceof AddTaskEdit ? EDIT_ADD : edit instanceof CompleteTaskEdit ? EDIT_COMPLETE : EDIT_DELETE);
+                List<Task> touched = edit.getTasks();
+                data.writeInt(touched.size());
+                for (Task task : touched) {
+                    writeTask(data, task, task.isCompleted());
+                }
+            }
+        }
+        return new Checkpoint(coveredGeneration, manager.getNextId(), tasks, completed, history.toByteArray());
+    }
+
+    // Snapshot layout: [magic:int][generation:long][nextId:long][count:int][tasks][undo edits][redo edits]
+    private void writeSnapshot(Checkpoint checkpoint) throws IOException {
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16));
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeLong(checkpoint.generation);
+            data.writeLong(checkpoint.nextId);
+            data.writeInt(checkpoint.tasks.length);
+            for (int i = 0; i < checkpoint.tasks.length; i++) {
+                writeTask(data, checkpoint.tasks[i], checkpoint.completed[i]);
+            }
+            data.write(checkpoint.history);
+            data.flush();
+            out.force(true);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Task layout: [id:long][completed:byte][description][dueDate], strings as [length:int][UTF-8], -1 for null
+    private static void writeTask(DataOutputStream data, Task task, boolean completed) throws IOException {
+        data.writeLong(task.getId());
+        data.writeByte(completed ? 1 : 0);
+        writeString(data, task.getDescription());
+        writeString(data, task.getDueDate());
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    // Returns whether any journal records were replayed on top of the snapshot. Leaves generation at the
+    // newest one seen, so the next segment gets a higher one.
+    private boolean recover() throws IOException {
+        boolean hasSnapshot = Files.exists(snapshotFile);
+        if (hasSnapshot) {
+            readSnapshot();
+        }
+        long covered = generation;
+        long replayed = 0;
+        if (Files.exists(rotatedJournalFile)) {
+            replayed += replay(rotatedJournalFile, covered);
+        }
+        if (Files.exists(journalFile)) {
+            replayed += replay(journalFile, covered);
+        }
+        return replayed > 0 || !hasSnapshot;
+    }
+
+    private void readSnapshot() throws IOException {
+        try (FileChannel in = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedByteBuffer snapshot = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (snapshot.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(snapshotFile + " is not a task snapshot.");
+            }
+            generation = snapshot.getLong();
+            long nextId = snapshot.getLong();
+            int count = snapshot.getInt();
+            // History edits refer to live tasks by id; tasks that are not live are shared between edits the same way
+            Map<Long, Task> byId = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                Task task = readTask(snapshot, byId);
+                manager.restoreTask(task);
+            }
+            List<TaskEdit> undo = readEdits(snapshot, byId);
+            List<TaskEdit> redo = readEdits(snapshot, byId);
+            manager.restoreHistory(nextId, undo, redo);
+        }
+    }
+
+    private static List<TaskEdit> readEdits(ByteBuffer snapshot, Map<Long, Task> byId) {
+        int count = snapshot.getInt();
+        List<TaskEdit> edits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = snapshot.get();
+            int touched = snapshot.getInt();
+            List<Task> tasks = new ArrayList<>(touched);
+            for (int j = 0; j < touched; j++) {
+                tasks.add(readTask(snapshot, byId));
+            }
+            if (kind == EDIT_ADD) {
+                edits.add(new AddTaskEdit(tasks.get(0)));
+            } else if (kind == EDIT_COMPLETE) {
+                edits.add(new CompleteTaskEdit(tasks.get(0)));
+            } else {
+                edits.add(new DeleteTaskEdit(tasks));
+            }
+        }
+        return edits;
+    }
+
+    private static Task readTask(ByteBuffer snapshot, Map<Long, Task> byId) {
+        long id = snapshot.getLong();
+        boolean completed = snapshot.get() != 0;
+        String description = getString(snapshot);
+        String dueDate = getString(snapshot);
+        Task task = byId.get(id);
+        if (task == null) {
+            task = new Task.TaskBuilder(description).setDueDate(dueDate).setCompleted(completed).build();
+            task.setId(id);
+            byId.put(id, task);
+        }
+        return task;
+    }
+
+    // Stops at the first zero length or checksum mismatch, i.e. at the end of the last complete record.
+    // Skips the whole segment if the snapshot already covers its generation, as after a crash between
+    // publishing a snapshot and discarding the segments it replaced. Returns the number of records replayed.
+    private long replay(Path file, long coveredGeneration) throws IOException {
+        long records = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer journal = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            // A segment whose header never reached the disk holds no records either
+            if (journal.remaining() < SEGMENT_HEADER_BYTES || journal.getInt() != SEGMENT_MAGIC) {
+                return 0;
+            }
+            long segmentGeneration = journal.getLong();
+            generation = Math.max(generation, segmentGeneration);
+            if (segmentGeneration <= coveredGeneration) {
+                return 0;
+            }
+            CRC32 check = new CRC32();
+            while (journal.remaining() >= 8) {
+                int length = journal.getInt();
+                int checksum = journal.getInt();
+                if (length <= 0 || length > journal.remaining()) {
+                    break;
+                }
+                ByteBuffer record = journal.slice().limit(length);
+                check.reset();
+                check.update(record.duplicate());
+                if ((int) check.getValue() != checksum) {
+                    break;
+                }
+                journal.position(journal.position() + length);
+                records++;
+                byte op = record.get();
+                if (op == OP_ADD) {
+                    boolean completed = record.get() != 0;
+                    String description = getString(record);
+                    String dueDate = getString(record);
+                    manager.addTask(new Task.TaskBuilder(description).setDueDate(dueDate).setCompleted(completed).build());
+                } else if (op == OP_COMPLETE) {
+                    manager.markCompleted(getString(record));
+                } else if (op == OP_DELETE) {
+                    manager.deleteTask(getString(record));
+                } else if (op == OP_UNDO) {
+                    manager.undo();
+                } else if (op == OP_REDO) {
+                    manager.redo();
+                }
+            }
+        }
+        return records;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
+
+// Recovery-time measurement: java ToDoListApp journal-recovery [tasks] [directory]
+class TaskJournalRecoveryBenchmark {
+    static void run(int count, Path directory) throws IOException, InterruptedException {
+        long compactNever = Long.MAX_VALUE;
+        TaskManager manager = new TaskManager();
+        try (TaskJournal journal = TaskJournal.open(directory, manager, 5, compactNever)) {
+            for (int i = 0; i < count; i++) {
+                String dueDate = i % 3 == 0 ? null : LocalDate.of(2025, 1, 1).plusDays(i % 400).toString();
+                manager.addTask(new Task.TaskBuilder("task " + i).setDueDate(dueDate).build());
+            }
+            for (int i = 0; i < count; i += 4) {
+                manager.markCompleted("task " + i);
+            }
+            for (int i = 1; i < count; i += 1000) {
+                manager.deleteTask("task " + i);
+            }
+            for (int i = 0; i < 100; i++) {
+                manager.undo();
+            }
+            for (int i = 0; i < 40; i++) {
+                manager.redo();
+            }
+            journal.awaitDurable();
+            System.out.printf("Journaled %,d tasks: %,d bytes of journal%n", count, journal.size());
+        }
+
+        // The recovering open replays the whole journal and compacts it into a snapshot
+        long begin = System.nanoTime();
+        TaskManager replayed = new TaskManager();
+        TaskJournal replayedJournal = TaskJournal.open(directory, replayed, 5, compactNever);
+        try {
+            System.out.printf("Recovered %,d tasks from the journal in %d ms%n", replayed.size(), (System.nanoTime() - begin) / 1_000_000);
+        } finally {
+            replayedJournal.close();
+        }
+
+        begin = System.nanoTime();
+        TaskManager fromSnapshot = new TaskManager();
+        TaskJournal snapshotJournal = TaskJournal.open(directory, fromSnapshot, 5, compactNever);
+        try {
+            System.out.printf("Recovered %,d tasks from the snapshot in %d ms, snapshot %,d bytes%n", fromSnapshot.size(),
+                    (System.nanoTime() - begin) / 1_000_000, Files.size(directory.resolve("tasks.snap")));
+            // Recovered history must undo exactly like the original
+            for (int i = 0; i < 200; i++) {
+                manager.undo();
+                fromSnapshot.undo();
+            }
+        } finally {
+            snapshotJournal.close();
+        }
+        for (String filter : new String[] { "completed", "pending" }) {
+            if (manager.countTasks(filter) != fromSnapshot.countTasks(filter)) {
+                throw new IllegalStateException("Recovered " + filter + " count differs.");
+            }
+        }
+        List<Task> expected = manager.getTasks();
+        List<Task> actual = fromSnapshot.getTasks();
+        for (int i = 0; i < expected.size(); i += Math.max(1, expected.size() / 1000)) {
+            if (expected.get(i).getId() != actual.get(i).getId() || !expected.get(i).toString().equals(actual.get(i).toString())) {
+                throw new IllegalStateException("Recovered task " + i + " differs.");
+            }
+        }
+        System.out.println("Recovered tasks and undo history match the original.");
+    }
+}
+
+// Hierarchical timing wheel of task reminders: four levels of 256 slots, each slot a circular
+// doubly-linked list, so schedule and cancel are O(1) and a tick only touches the slot that is due.
+// An entry far in the future sits in a coarse slot and moves down a level when that slot comes up.
+// Not thread-safe; ReminderScheduler guards it.
+class ReminderWheel {
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    // A scheduled reminder; it lives in at most one slot at a time
+    static final class Reminder {
+        final Task task;
+        long deadline;
+        boolean overdue;
+        private Reminder prev;
+        private Reminder next;
+
+        Reminder(Task task) {
+            this.task = task;
+        }
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    private final Reminder[][] slots = new Reminder[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    ReminderWheel(long startTick) {
+        this.currentTick = startTick;
+        for (Reminder[] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                Reminder sentinel = new Reminder(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[i] = sentinel;
+            }
+        }
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Deadlines at or before the current tick fire on the next one
+    void schedule(Reminder reminder, long deadline) {
+        cancel(reminder);
+        reminder.deadline = Math.max(deadline, currentTick + 1);
+        place(reminder);
+        size++;
+    }
+
+    void cancel(Reminder reminder) {
+        if (reminder.isScheduled()) {
+            unlink(reminder);
+            size--;
+        }
+    }
+
+    // Advances tick by tick up to target and hands every reminder that comes due to fire, in deadline
+    // order. fire may schedule the reminder again.
+    void advanceTo(long target, Consumer<Reminder> fire) {
+        while (currentTick < target) {
+            currentTick++;
+            cascade(1);
+            Reminder sentinel = slots[0][(int) (currentTick & SLOT_MASK)];
+            while (sentinel.next != sentinel) {
+                Reminder reminder = sentinel.next;
+                unlink(reminder);
+                size--;
+                fire.accept(reminder);
+            }
+        }
+    }
+
+    // When a level's index wraps to zero, the next level's current slot is redistributed downwards,
+    // higher levels first so their entries can trickle all the way down
+    private void cascade(int level) {
+        if (level >= LEVELS || ((currentTick >>> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+            return;
+        }
+        cascade(level + 1);
+        Reminder sentinel = slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        while (sentinel.next != sentinel) {
+            Reminder reminder = sentinel.next;
+            unlink(reminder);
+            place(reminder);
+        }
+    }
+
+    // Picks the finest level whose span covers the remaining delay
+    private void place(Reminder reminder) {
+        long delta = reminder.deadline - currentTick;
+        long at = delta > MAX_DELTA ? currentTick + MAX_DELTA : reminder.deadline;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Reminder sentinel = slots[level][(int) ((at >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        reminder.prev = sentinel.prev;
+        reminder.next = sentinel;
+        sentinel.prev.next = reminder;
+        sentinel.prev = reminder;
+    }
+
+    private static void unlink(Reminder reminder) {
+        reminder.prev.next = reminder.next;
+        reminder.next.prev = reminder.prev;
+        reminder.prev = null;
+        reminder.next = null;
+    }
+}
+
+// Fires "due" and "overdue" notifications for pending tasks with a due date: due at the start of the
+// due day and overdue at the start of the next one, in the given time zone. TaskManager schedules
+// and cancels through it as tasks are added, completed, deleted, undone and redone. One daemon thread
+// advances the wheel once per tick; listeners are called on that thread, outside the lock.
+class ReminderScheduler implements Closeable {
+    interface Listener {
+        void due(Task task);
+
+        void overdue(Task task);
+    }
+
+    private final long tickMillis;
+    private final ZoneId zone;
+    private final Listener listener;
+    private final ReminderWheel wheel;
+    private final Thread ticker;
+    private boolean closed;
+
+    ReminderScheduler(long tickMillis, ZoneId zone, Listener listener, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.zone = zone;
+        this.listener = listener;
+        this.wheel = new ReminderWheel(nowMillis / tickMillis);
+        this.ticker = new Thread(this::tickLoop, "task-reminders");
+        this.ticker.setDaemon(true);
+    }
+
+    public void start() {
+        ticker.start();
+    }
+
+    public synchronized int size() {
+        return wheel.size();
+    }
+
+    // A task already past its due day only gets the overdue notification
+    public void schedule(Task task) {
+        long dueTick = dayStartMillis(task.getDueDay()) / tickMillis;
+        long overdueTick = dayStartMillis(task.getDueDay() + 1L) / tickMillis;
+        synchronized (this) {
+            ReminderWheel.Reminder reminder = task.getReminder();
+            if (reminder == null) {
+                reminder = new ReminderWheel.Reminder(task);
+                task.setReminder(reminder);
+            }
+            reminder.overdue = overdueTick <= wheel.currentTick();
+            wheel.schedule(reminder, reminder.overdue ? overdueTick : dueTick);
+        }
+    }
+
+    public synchronized void cancel(Task task) {
+        ReminderWheel.Reminder reminder = task.getReminder();
+        if (reminder != null) {
+            wheel.cancel(reminder);
+        }
+    }
+
+    // Fires everything due up to nowMillis and returns how many notifications went out
+    public int advanceTo(long nowMillis) {
+        List<Task> due = new ArrayList<>();
+        List<Task> overdue = new ArrayList<>();
+        synchronized (this) {
+            // A due reminder goes back on the wheel for the overdue notification, which is the last
+            wheel.advanceTo(nowMillis / tickMillis, reminder -> {
+                if (reminder.overdue) {
+                    overdue.add(reminder.task);
+                } else {
+                    due.add(reminder.task);
+                    reminder.overdue = true;
+                    wheel.schedule(reminder, dayStartMillis(reminder.task.getDueDay() + 1L) / tickMillis);
+                }
+            });
+        }
+        due.forEach(listener::due);
+        overdue.forEach(listener::overdue);
+        return due.size() + overdue.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    private long dayStartMillis(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private void tickLoop() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    long now = System.currentTimeMillis();
+                    wait(tickMillis - now % tickMillis);
+                    if (closed) {
+                        return;
+                    }
+                }
+                advanceTo(System.currentTimeMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// Times schedule, cancel and firing on the reminder wheel, checks every notification fires in the
+// tick its day starts, then checks that TaskManager keeps the wheel in step with completes, deletes,
+// undos and redos: java ToDoListApp reminder-bench [reminders]
+class ReminderBenchmark {
+    private static final long TICK_MILLIS = 1000;
+    private static final long STEP_MILLIS = 60 * 60 * 1000;
+    private static final int DAYS = 60;
+
+    static void run(int count) {
+        ZoneId zone = ZoneOffset.UTC;
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        long startMillis = start.atStartOfDay(zone).toInstant().toEpochMilli();
+        long[] now = { startMillis };
+        long[] fired = new long[2];
+        ReminderScheduler.Listener listener = new ReminderScheduler.Listener() {
+            @Override
+            public void due(Task task) {
+                check(task.getDueDay(), now[0]);
+                fired[0]++;
+            }
+
+            @Override
+            public void overdue(Task task) {
+                check(task.getDueDay() + 1L, now[0]);
+                fired[1]++;
+            }
+        };
+        ReminderScheduler scheduler = new ReminderScheduler(TICK_MILLIS, zone, listener, startMillis);
+
+        SplittableRandom random = new SplittableRandom(1);
+        Task[] tasks = new Task[count];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = new Task.TaskBuilder("task " + i).setDueDate(start.plusDays(1 + random.nextInt(DAYS)).toString()).build();
+        }
+        long begin = System.nanoTime();
+        for (Task task : tasks) {
+            scheduler.schedule(task);
+        }
+        UndoBenchmark.report("schedule", count, begin);
+        begin = System.nanoTime();
+        for (int i = 0; i < count; i += 2) {
+            scheduler.cancel(tasks[i]);
+        }
+        UndoBenchmark.report("cancel", (count + 1) / 2, begin);
+
+        int live = count / 2;
+        begin = System.nanoTime();
+        for (long millis = startMillis + STEP_MILLIS; millis <= startMillis + (DAYS + 2) * 86_400_000L; millis += STEP_MILLIS) {
+            now[0] = millis;
+            scheduler.advanceTo(millis);
+        }
+        UndoBenchmark.report("fire (due + overdue)", live * 2, begin);
+        if (fired[0] != live || fired[1] != live || scheduler.size() != 0) {
+            throw new IllegalStateException("Fired " + fired[0] + " due and " + fired[1] + " overdue of " + live + " reminders.");
+        }
+        System.out.printf("%,d ticks advanced, each notification in the hour its day started%n", (DAYS + 2) * 86_400_000L / TICK_MILLIS);
+
+        ReminderScheduler tracked = new ReminderScheduler(TICK_MILLIS, zone, listener, startMillis);
+        TaskManager manager = new TaskManager();
+        manager.attachReminders(tracked);
+        manager.addTask(new Task.TaskBuilder("report").setDueDate(start.plusDays(3).toString()).build());
+        manager.addTask(new Task.TaskBuilder("invoice").setDueDate(start.plusDays(5).toString()).build());
+        manager.addTask(new Task.TaskBuilder("no deadline").build());
+        expect(tracked, 2);
+        manager.markCompleted("report");
+        expect(tracked, 1);
+        manager.deleteTask("invoice");
+        expect(tracked, 0);
+        manager.undo();
+        expect(tracked, 1);
+        manager.undo();
+        expect(tracked, 2);
+        manager.redo();
+        expect(tracked, 1);
+        System.out.println("Completes, deletes, undos and redos kept the wheel in step.");
+    }
+
+    // Notifications for a day fire within the advance step in which that day starts
+    private static void check(long epochDay, long nowMillis) {
+        long dayStart = epochDay * 86_400_000L;
+        if (nowMillis < dayStart || nowMillis >= dayStart + STEP_MILLIS) {
+            throw new IllegalStateException("Reminder for day " + epochDay + " fired at " + nowMillis);
+        }
+    }
+
+    private static void expect(ReminderScheduler scheduler, int scheduled) {
+        if (scheduler.size() != scheduled) {
+            throw new IllegalStateException("Expected " + scheduled + " reminders, found " + scheduler.size());
+        }
+    }
+}
+
+// Inverted index over task descriptions: lower-cased letter/digit tokens map to posting lists of task
+// ids, delta-encoded as varints. New tasks have the highest id, so adding one appends to each of its
+// lists. Deleting only counts the postings as dead, so an undone delete or redone add finds them still
+// in place. Once dead postings outnumber live ones the whole index is rebuilt from the live tasks,
+// which keeps it within twice the size of the live postings.
+class TaskSearchIndex {
+    private static final int MIN_REBUILD_POSTINGS = 1024;
+
+    // Sorted ids in blocks of BLOCK: each block's first id is kept in a skip array and the rest are
+    // varint-encoded gaps, so a membership test binary-searches the skip array and decodes one block
+    static final class Postings {
+        private static final int BLOCK = 64;
+
+        private byte[] data = new byte[4];
+        private int length;
+        private long[] firsts = new long[1];
+        private int[] offsets = new int[1];
+        private int count;
+        private long lastId = -1;
+
+        void add(long id) {
+            if (id > lastId) {
+                append(id);
+                return;
+            }
+            // An id from before a rebuild coming back: re-encode with it in place
+            long[] ids = decode();
+            int position = Arrays.binarySearch(ids, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            length = 0;
+            count = 0;
+            lastId = -1;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == position) {
+                    append(id);
+                }
+                append(ids[i]);
+            }
+            if (position == ids.length) {
+                append(id);
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        boolean contains(long id) {
+            int blocks = (count + BLOCK - 1) / BLOCK;
+            int block = Arrays.binarySearch(firsts, 0, blocks, id);
+            if (block >= 0) {
+                return true;
+            }
+            block = -block - 2;
+            if (block < 0) {
+                return false;
+            }
+            long current = firsts[block];
+            int offset = offsets[block];
+            for (int i = Math.min(BLOCK, count - block * BLOCK) - 1; i > 0 && current < id; i--) {
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    gap |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += gap;
+            }
+            return current == id;
+        }
+
+        long[] decode() {
+            long[] ids = new long[count];
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                if (i % BLOCK == 0) {
+                    ids[i] = firsts[i / BLOCK];
+                    continue;
+                }
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    gap |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                ids[i] = ids[i - 1] + gap;
+            }
+            return ids;
+        }
+
+        int bytes() {
+            return data.length + firsts.length * 8 + offsets.length * 4;
+        }
+
+        private void append(long id) {
+            if (count % BLOCK == 0) {
+                int block = count / BLOCK;
+                if (block == firsts.length) {
+                    firsts = Arrays.copyOf(firsts, block * 2);
+                    offsets = Arrays.copyOf(offsets, block * 2);
+                }
+                firsts[block] = id;
+                offsets[block] = length;
+            } else {
+                if (length + 10 > data.length) {
+                    data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+                }
+                long gap = id - lastId;
+                while (gap >= 0x80) {
+                    data[length++] = (byte) (gap | 0x80);
+                    gap >>>= 7;
+                }
+                data[length++] = (byte) gap;
+            }
+            lastId = id;
+            count++;
+        }
     }
 
-    public static class TaskBuilder {
-        private String description;
-        private boolean completed = false; // default
-        private String dueDate;
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    // Bumped by every rebuild; a task whose generation matches still has its postings in place
+    private int generation = 1;
+    private long livePostings;
+    private long deadPostings;
 
-        public TaskBuilder(String description) {
-            this.description = description;
+    void add(Task task) {
+        List<String> tokens = tokenize(task.getDescription());
+        if (task.getSearchGeneration() == generation) {
+            deadPostings -= tokens.size();
+            livePostings += tokens.size();
+            return;
         }
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> new Postings()).add(task.getId());
+        }
+        task.setSearchGeneration(generation);
+        livePostings += tokens.size();
+    }
 
-        public TaskBuilder setDueDate(String dueDate) {
-            this.dueDate = dueDate;
-            return this;
+    void remove(Task task) {
+        int tokens = tokenize(task.getDescription()).size();
+        livePostings -= tokens;
+        deadPostings += tokens;
+    }
+
+    boolean needsRebuild() {
+        return deadPostings > livePostings && deadPostings > MIN_REBUILD_POSTINGS;
+    }
+
+    void rebuild(Collection<Task> live) {
+        postings.clear();
+        generation++;
+        livePostings = 0;
+        deadPostings = 0;
+        for (Task task : live) {
+            add(task);
         }
+    }
 
-        public TaskBuilder setCompleted(boolean completed) {
-            this.completed = completed;
-            return this;
+    // Approximate heap used by posting data and token keys
+    long footprintBytes() {
+        long bytes = 0;
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+            bytes += entry.getValue().bytes() + 2L * entry.getKey().length() + 120;
         }
+        return bytes;
+    }
 
-        public Task build() {
-            return new Task(this);
+    // Tasks whose description has every term, in insertion order, at most limit of them. A term ending
+    // in '*' matches any token it prefixes. Only the rarest term's postings are decoded; each candidate
+    // is then probed in the other exact terms' postings and checked for the prefix terms in its text.
+    List<Task> search(String query, int limit, LongFunction<Task> live) {
+        List<String> terms = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        for (String piece : query.trim().split("\\s+")) {
+            boolean prefix = piece.endsWith("*");
+            List<String> tokens = tokenize(prefix ? piece.substring(0, piece.length() - 1) : piece);
+            for (int i = 0; i < tokens.size(); i++) {
+                terms.add(tokens.get(i));
+                prefixes.add(prefix && i == tokens.size() - 1);
+            }
+        }
+        List<Task> results = new ArrayList<>();
+        if (terms.isEmpty()) {
+            return results;
+        }
+        int rarest = 0;
+        long rarestCount = Long.MAX_VALUE;
+        for (int i = 0; i < terms.size(); i++) {
+            long count = estimate(terms.get(i), prefixes.get(i), rarestCount);
+            if (count < rarestCount) {
+                rarest = i;
+                rarestCount = count;
+            }
+        }
+        // Exact terms are checked against their postings, prefix terms against the description
+        Postings[] exact = new Postings[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            if (i != rarest && !prefixes.get(i)) {
+                exact[i] = postings.get(terms.get(i));
+                if (exact[i] == null) {
+                    return results;
+                }
+            }
+        }
+        candidates:
+        for (long id : candidates(terms.get(rarest), prefixes.get(rarest))) {
+            for (Postings list : exact) {
+                if (list != null && !list.contains(id)) {
+                    continue candidates;
+                }
+            }
+            Task task = live.apply(id);
+            if (task != null && matchesPrefixes(task.getDescription(), terms, prefixes)) {
+                results.add(task);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
         }
+        return results;
     }
 
-    public String getDescription() {
-        return description;
+    // Stops counting once past cap, since that term cannot be the rarest
+    private long estimate(String term, boolean prefix, long cap) {
+        if (!prefix) {
+            Postings list = postings.get(term);
+            return list == null ? 0 : list.count();
+        }
+        long count = 0;
+        for (Postings list : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            count += list.count();
+            if (count >= cap) {
+                break;
+            }
+        }
+        return count;
     }
 
-    public boolean isCompleted() {
+    private long[] candidates(String term, boolean prefix) {
+        if (!prefix) {
+            Postings list = postings.get(term);
+            return list == null ? new long[0] : list.decode();
+        }
+        long[] ids = new long[0];
+        int size = 0;
+        for (Postings list : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            long[] more = list.decode();
+            if (size + more.length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + more.length));
+            }
+            System.arraycopy(more, 0, ids, size, more.length);
+            size += more.length;
+        }
+        // A task can hold several tokens with the prefix
+        Arrays.sort(ids, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ids[i] != ids[distinct - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    private static boolean matchesPrefixes(String description, List<String> terms, List<Boolean> prefixes) {
+        for (int i = 0; i < terms.size(); i++) {
+            if (prefixes.get(i) && !hasTokenWithPrefix(description, terms.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same token boundaries as tokenize, compared in place instead of allocating the tokens
+    private static boolean hasTokenWithPrefix(String text, String prefix) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= prefix.length() && text.regionMatches(true, start, prefix, 0, prefix.length())) {
+                    return true;
+                }
+                start = -1;
+            }
+        }
+        return false;
+    }
+
+    // Distinct lower-cased runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
+
+// Times searches over a large generated list, then checks results against a full scan after random
+// edits, undos and redos: java ToDoListApp search-bench [tasks]
+class TaskSearchBenchmark {
+    private static final int QUERIES = 10_000;
+    private static final String[] SYLLABLES = { "ka", "lo", "mi", "ten", "ra", "su", "vo", "pel", "da", "ni", "gor", "sha", "e", "bu", "tri" };
+
+    static void run(int count) {
+        SplittableRandom random = new SplittableRandom(3);
+        String[] vocabulary = vocabulary(20_000);
+        TaskManager manager = new TaskManager();
+        long begin = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            manager.addTask(new Task.TaskBuilder(sentence(random, vocabulary)).build());
+        }
+        UndoBenchmark.report("add with indexing", count, begin);
+        System.out.printf("Index footprint: about %,d KB for %,d tasks%n", manager.searchFootprintBytes() / 1024, count);
+
+        // Word i is roughly 1/i as common as word 0: the first hundred are common, the upper half rare
+        String[] names = { "rare word", "common word AND mid word", "prefix* AND mid word", "two common words" };
+        for (int kind = 0; kind < names.length; kind++) {
+            long[] latencies = new long[QUERIES];
+            long found = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                String common = vocabulary[random.nextInt(100)];
+                String mid = vocabulary[100 + random.nextInt(1_000)];
+                String query = kind == 0 ? vocabulary[10_000 + random.nextInt(10_000)]
+                        : kind == 1 ? common + " " + mid
+                        : kind == 2 ? common.substring(0, Math.min(2, common.length())) + "* " + mid
+                        : common + " " + vocabulary[random.nextInt(100)];
+                long start = System.nanoTime();
+                found += manager.search(query, TaskManager.PAGE_SIZE).size();
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("search %-26s p50 %,8d ns, p99 %,9d ns, %.1f results (at most %d)%n", names[kind],
+                    latencies[QUERIES / 2], latencies[QUERIES * 99 / 100], (double) found / QUERIES, TaskManager.PAGE_SIZE);
+        }
+        check(new SplittableRandom(5), vocabulary(30));
+        System.out.println("Search matched a full scan after random edits, undos and redos.");
+    }
+
+    // Distinct words: the index written in base 15 with one syllable per digit
+    private static String[] vocabulary(int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            int rest = i;
+            do {
+                word.append(SYLLABLES[rest % SYLLABLES.length]);
+                rest /= SYLLABLES.length;
+            } while (rest > 0);
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    // Zipf-like word choice with random capitalisation
+    private static String sentence(SplittableRandom random, String[] vocabulary) {
+        StringBuilder sentence = new StringBuilder();
+        for (int w = 2 + random.nextInt(5); w > 0; w--) {
+            int index = (int) Math.min(vocabulary.length - 1, Math.pow(vocabulary.length, random.nextDouble()) - 1);
+            sentence.append(sentence.length() == 0 ? "" : " ").append(random.nextBoolean() ? vocabulary[index] : vocabulary[index].toUpperCase(Locale.ROOT));
+        }
+        return sentence.toString();
+    }
+
+    private static void check(SplittableRandom random, String[] vocabulary) {
+        TaskManager manager = new TaskManager(50);
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int step = 0; step < 20_000; step++) {
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        manager.addTask(new Task.TaskBuilder(sentence(random, vocabulary)).build());
+                        break;
+                    case 2:
+                        manager.deleteTask(manager.size() == 0 ? "" : manager.getTasks().get(random.nextInt(manager.size())).getDescription());
+                        break;
+                    case 3:
+                        manager.undo();
+                        break;
+                    case 4:
+                        manager.redo();
+                        break;
+                    default:
+                        String word = vocabulary[random.nextInt(vocabulary.length)];
+                        String other = vocabulary[random.nextInt(vocabulary.length)];
+                        String prefix = other.substring(0, Math.min(2, other.length()));
+                        String query = word.toUpperCase(Locale.ROOT) + " " + prefix + "*";
+                        List<Task> expected = new ArrayList<>();
+                        for (Task task : manager.getTasks()) {
+                            List<String> tokens = TaskSearchIndex.tokenize(task.getDescription());
+                            if (tokens.contains(word) && tokens.stream().anyMatch(token -> token.startsWith(prefix))) {
+                                expected.add(task);
+                            }
+                        }
+                        if (!expected.equals(manager.search(query, Integer.MAX_VALUE))) {
+                            throw new IllegalStateException("Search for \"" + query + "\" differs from a full scan.");
+                        }
+                }
+            }
+            // Deleting nearly everything forces rebuilds; undoing brings back tasks indexed before them
+            while (manager.size() > 10) {
+                manager.deleteTask(manager.getTasks().get(0).getDescription());
+            }
+            for (int i = 0; i < 50; i++) {
+                manager.undo();
+            }
+        } finally {
+            System.setOut(console);
+        }
+        for (String word : vocabulary) {
+            List<Task> expected = new ArrayList<>();
+            for (Task task : manager.getTasks()) {
+                if (TaskSearchIndex.tokenize(task.getDescription()).contains(word)) {
+                    expected.add(task);
+                }
+            }
+            if (!expected.equals(manager.search(word, Integer.MAX_VALUE))) {
+                throw new IllegalStateException("Search for \"" + word + "\" differs from a full scan after rebuilds.");
+            }
+        }
+    }
+}
+
+// One immutable version of a shared task list. Tasks sit in a treap keyed by id, and an update copies
+// only the O(log n) nodes on the changed path, so a reader holding a version keeps a consistent list
+// while writers move on. Tasks in a version are never mutated; a completion stores a completed copy.
+final class TaskListSnapshot {
+    static final TaskListSnapshot EMPTY = new TaskListSnapshot(0, 0, null, 0, 0);
+
+    private final long version;
+    private final long nextId;
+    private final Node root;
+    private final int size;
+    private final int completed;
+
+    private static final class Node {
+        final long id;
+        final Task task;
+        // Heap order on a hash of the id keeps the tree balanced in expectation for sequential ids
+        final int priority;
+        final Node left;
+        final Node right;
+
+        Node(Task task, int priority, Node left, Node right) {
+            this.id = task.getId();
+            this.task = task;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private TaskListSnapshot(long version, long nextId, Node root, int size, int completed) {
+        this.version = version;
+        this.nextId = nextId;
+        this.root = root;
+        this.size = size;
+        this.completed = completed;
+    }
+
+    // Counts the commits that produced this version
+    public long version() {
+        return version;
+    }
+
+    public long nextId() {
+        return nextId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int completedCount() {
         return completed;
     }
 
-    public String getDueDate() {
-        return dueDate;
+    public Task get(long id) {
+        Node node = root;
+        while (node != null && node.id != id) {
+            node = id < node.id ? node.left : node.right;
+        }
+        return node == null ? null : node.task;
     }
 
-    public void markCompleted() {
-        this.completed = true;
+    // The next version with a copy of task under the next id
+    public TaskListSnapshot add(Task task) {
+        Task added = copy(task, nextId, task.isCompleted());
+        return new TaskListSnapshot(version + 1, nextId + 1, put(root, added, priority(nextId)), size + 1, completed + (added.isCompleted() ? 1 : 0));
     }
 
-    public void markPending() {
-        this.completed = false;
+    // The next version with task stored under its own id, replacing any task already there
+    public TaskListSnapshot put(Task task) {
+        Task old = get(task.getId());
+        int completedDelta = (task.isCompleted() ? 1 : 0) - (old != null && old.isCompleted() ? 1 : 0);
+        return new TaskListSnapshot(version + 1, Math.max(nextId, task.getId() + 1), put(root, task, priority(task.getId())),
+                size + (old == null ? 1 : 0), completed + completedDelta);
     }
 
-    @Override
-    public String toString() {
-        return description + " - " + (completed ? "Completed" : "Pending") + (dueDate != null ? ", Due: " + dueDate : "");
+    public TaskListSnapshot without(long id) {
+        Task old = get(id);
+        if (old == null) {
+            return this;
+        }
+        return new TaskListSnapshot(version + 1, nextId, remove(root, id), size - 1, completed - (old.isCompleted() ? 1 : 0));
+    }
+
+    // Up to limit tasks with ids after cursor, in id order; TaskManager.FIRST_PAGE starts at the top
+    public List<Task> page(long cursor, int limit) {
+        List<Task> page = new ArrayList<>(Math.min(limit, size));
+        collect(root, cursor, limit, page);
+        return page;
+    }
+
+    public void forEach(Consumer<Task> action) {
+        forEach(root, action);
+    }
+
+    // A task with the same fields under another id and completion flag
+    static Task copy(Task task, long id, boolean completed) {
+        Task copy = new Task.TaskBuilder(task.getDescription()).setDueDate(task.getDueDate()).setCompleted(completed).build();
+        copy.setId(id);
+        return copy;
+    }
+
+    private static Node put(Node node, Task task, int priority) {
+        if (node == null) {
+            return new Node(task, priority, null, null);
+        }
+        long id = task.getId();
+        if (id == node.id) {
+            return new Node(task, node.priority, node.left, node.right);
+        }
+        if (id < node.id) {
+            Node left = put(node.left, task, priority);
+            if (left.priority > node.priority) {
+                // Rotate right; left is a fresh copy, so its children can be shared
+                return new Node(left.task, left.priority, left.left, new Node(node.task, node.priority, left.right, node.right));
+            }
+            return new Node(node.task, node.priority, left, node.right);
+        }
+        Node right = put(node.right, task, priority);
+        if (right.priority > node.priority) {
+            return new Node(right.task, right.priority, new Node(node.task, node.priority, node.left, right.left), right.right);
+        }
+        return new Node(node.task, node.priority, node.left, right);
+    }
+
+    private static Node remove(Node node, long id) {
+        if (id < node.id) {
+            return new Node(node.task, node.priority, remove(node.left, id), node.right);
+        }
+        if (id > node.id) {
+            return new Node(node.task, node.priority, node.left, remove(node.right, id));
+        }
+        return merge(node.left, node.right);
+    }
+
+    // Joins two treaps whose keys are all below, respectively all above, the removed id
+    private static Node merge(Node low, Node high) {
+        if (low == null) {
+            return high;
+        }
+        if (high == null) {
+            return low;
+        }
+        if (low.priority > high.priority) {
+            return new Node(low.task, low.priority, low.left, merge(low.right, high));
+        }
+        return new Node(high.task, high.priority, merge(low, high.left), high.right);
+    }
+
+    private static void collect(Node node, long cursor, int limit, List<Task> page) {
+        if (node == null || page.size() == limit) {
+            return;
+        }
+        if (node.id > cursor) {
+            collect(node.left, cursor, limit, page);
+            if (page.size() < limit) {
+                page.add(node.task);
+            }
+        }
+        collect(node.right, cursor, limit, page);
+    }
+
+    private static void forEach(Node node, Consumer<Task> action) {
+        if (node != null) {
+            forEach(node.left, action);
+            action.accept(node.task);
+            forEach(node.right, action);
+        }
+    }
+
+    private static int priority(long id) {
+        long z = id * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        return (int) (z ^ (z >>> 31));
     }
 }
 
-// Memento class for undo/redo functionality
-class TaskMemento {
-    private final List<Task> taskState;
+// Named task lists shared by many users. Each list is a reference to its latest snapshot: readers
+// take the reference and never block, writers build the next version aside and publish it with
+// compareAndSet, so a commit succeeds only if nobody committed to that list since it was read.
+class SharedTaskStore {
+    private final ConcurrentHashMap<String, AtomicReference<TaskListSnapshot>> lists = new ConcurrentHashMap<>();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    // The latest version of a list; a list nobody has written to is empty
+    public TaskListSnapshot snapshot(String list) {
+        return head(list).get();
+    }
+
+    // Publishes next if the list is still at base, and otherwise leaves it untouched
+    public boolean compareAndCommit(String list, TaskListSnapshot base, TaskListSnapshot next) {
+        if (head(list).compareAndSet(base, next)) {
+            commits.increment();
+            return true;
+        }
+        conflicts.increment();
+        return false;
+    }
 
-    public TaskMemento(List<Task> taskState) {
-        this.taskState = new ArrayList<>(taskState);
+    public long commits() {
+        return commits.sum();
     }
 
-    public List<Task> getTaskState() {
-        return new ArrayList<>(taskState);
+    // Commits that lost the race and had to be rebuilt on a newer version
+    public long conflicts() {
+        return conflicts.sum();
+    }
+
+    private AtomicReference<TaskListSnapshot> head(String list) {
+        AtomicReference<TaskListSnapshot> head = lists.get(list);
+        return head != null ? head : lists.computeIfAbsent(list, name -> new AtomicReference<>(TaskListSnapshot.EMPTY));
     }
 }
 
-// Caretaker class for managing memento states
-class TaskManager {
-    private List<Task> tasks = new ArrayList<>();
-    private List<TaskMemento> history = new ArrayList<>();
-    private int currentState = -1;
+// One user's handle on a shared list, with that user's own undo and redo history. A session belongs
+// to a single thread, so the history needs no lock and one user's undo never waits on another's.
+// Edits are recorded as the task before and after, and are undone only while the task is still as
+// this user left it; if someone else has changed it since, the undo is dropped instead of
+// overwriting their work.
+class TaskSession {
+    private final SharedTaskStore store;
+    private final String list;
+    private final int historyLimit;
+    // Newest change first, as in TaskManager
+    private final ArrayDeque<Change> undoStack = new ArrayDeque<>();
+    private final ArrayDeque<Change> redoStack = new ArrayDeque<>();
+
+    // One committed change to one task; null stands for no task
+    private static final class Change {
+        final long id;
+        final Task before;
+        final Task after;
 
-    public void addTask(Task task) {
-        saveState();
-        tasks.add(task);
+        Change(long id, Task before, Task after) {
+            this.id = id;
+            this.before = before;
+            this.after = after;
+        }
     }
 
-    public void markCompleted(String description) {
-        saveState();
-        for (Task task : tasks) {
-            if (task.getDescription().equals(description)) {
-                task.markCompleted();
-                return;
+    public TaskSession(SharedTaskStore store, String list) {
+        this(store, list, TaskManager.DEFAULT_HISTORY_LIMIT);
+    }
+
+    public TaskSession(SharedTaskStore store, String list, int historyLimit) {
+        this.store = store;
+        this.list = list;
+        this.historyLimit = historyLimit;
+    }
+
+    // Adds a copy of task and returns the id it was given
+    public long addTask(Task task) {
+        while (true) {
+            TaskListSnapshot base = store.snapshot(list);
+            TaskListSnapshot next = base.add(task);
+            if (store.compareAndCommit(list, base, next)) {
+                Task added = next.get(base.nextId());
+                record(new Change(added.getId(), null, added));
+                return added.getId();
             }
         }
     }
 
-    public void deleteTask(String description) {
-        saveState();
-        tasks.removeIf(task -> task.getDescription().equals(description));
+    // False if the task is gone or already completed
+    public boolean markCompleted(long id) {
+        while (true) {
+            Task current = store.snapshot(list).get(id);
+            if (current == null || current.isCompleted()) {
+                return false;
+            }
+            Task completed = TaskListSnapshot.copy(current, id, true);
+            if (replace(id, current, completed)) {
+                record(new Change(id, current, completed));
+                return true;
+            }
+        }
     }
 
-    public void viewTasks(String filter) {
-        switch (filter) {
-            case "all":
-                tasks.forEach(System.out::println);
-                break;
-            case "completed":
-                tasks.stream().filter(Task::isCompleted).forEach(System.out::println);
-                break;
-            case "pending":
-                tasks.stream().filter(task -> !task.isCompleted()).forEach(System.out::println);
-                break;
-            default:
-                System.out.println("Invalid filter. Use 'all', 'completed', or 'pending'.");
+    public boolean deleteTask(long id) {
+        while (true) {
+            Task current = store.snapshot(list).get(id);
+            if (current == null) {
+                return false;
+            }
+            if (replace(id, current, null)) {
+                record(new Change(id, current, null));
+                return true;
+            }
         }
     }
 
-    public void undo() {
-        if (currentState <= 0) {
-            System.out.println("No actions to undo.");
-            return;
+    // False if there is nothing to undo, or another user has changed the task since
+    public boolean undo() {
+        Change change = undoStack.pollFirst();
+        if (change == null || !replace(change.id, change.after, change.before)) {
+            return false;
         }
-        currentState--;
-        tasks = history.get(currentState).getTaskState();
+        redoStack.addFirst(change);
+        return true;
     }
 
-    public void redo() {
-        if (currentState >= history.size() - 1) {
-            System.out.println("No actions to redo.");
-            return;
+    public boolean redo() {
+        Change change = redoStack.pollFirst();
+        if (change == null || !replace(change.id, change.before, change.after)) {
+            return false;
+        }
+        undoStack.addFirst(change);
+        return true;
+    }
+
+    // The latest version of the list; it stays consistent however long the caller reads it
+    public TaskListSnapshot view() {
+        return store.snapshot(list);
+    }
+
+    // Swaps the task with this id from expected to replacement, rebuilding the commit while other
+    // tasks change underneath; false as soon as the task itself is no longer expected
+    private boolean replace(long id, Task expected, Task replacement) {
+        while (true) {
+            TaskListSnapshot base = store.snapshot(list);
+            if (base.get(id) != expected) {
+                return false;
+            }
+            TaskListSnapshot next = replacement == null ? base.without(id) : base.put(replacement);
+            if (store.compareAndCommit(list, base, next)) {
+                return true;
+            }
+        }
+    }
+
+    private void record(Change change) {
+        redoStack.clear();
+        undoStack.addFirst(change);
+        if (undoStack.size() > historyLimit) {
+            undoStack.pollLast();
+        }
+    }
+}
+
+// Multi-user run over SharedTaskStore, with every user on one list and then each on their own list,
+// followed by lost-update and snapshot consistency checks: java ToDoListApp shared-bench [opsPerUser]
+class SharedTaskBenchmark {
+    static void run(int opsPerUser) throws InterruptedException {
+        int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", ops per user: " + opsPerUser);
+        // Untimed round so the first measured row is not paying for JIT compilation
+        SharedTaskStore warmup = new SharedTaskStore();
+        runUsers(2, user -> work(new TaskSession(warmup, "team"), opsPerUser));
+        for (boolean shared : new boolean[] { true, false }) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                SharedTaskStore store = new SharedTaskStore();
+                long elapsed = runUsers(threads, user -> work(new TaskSession(store, shared ? "team" : "user-" + user), opsPerUser));
+                System.out.printf("%-15s users: %2d, %,12.0f commits/s, %5.2f%% conflicts%n", shared ? "one list," : "list per user,",
+                        threads, store.commits() * 1e9 / elapsed, 100.0 * store.conflicts() / (store.commits() + store.conflicts()));
+            }
+        }
+        check(maxThreads, opsPerUser);
+        checkUndoConflict();
+    }
+
+    // Add, complete, and every fourth time undo and redo the completion; reads a page now and then
+    private static void work(TaskSession session, int ops) {
+        for (int i = 0; i < ops; i++) {
+            long id = session.addTask(new Task.TaskBuilder("task " + i).setDueDate("2024-06-01").build());
+            session.markCompleted(id);
+            if ((i & 3) == 3) {
+                session.undo();
+                session.redo();
+            }
+            if ((i & 7) == 7) {
+                session.view().page(TaskManager.FIRST_PAGE, TaskManager.PAGE_SIZE);
+            }
+        }
+    }
+
+    // All users on one list while a reader recounts every version it sees: nothing a writer
+    // committed may go missing, and no reader may see a half-applied commit
+    private static void check(int users, int opsPerUser) throws InterruptedException {
+        SharedTaskStore store = new SharedTaskStore();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        long[] reads = new long[1];
+        Thread reader = new Thread(() -> {
+            long lastVersion = -1;
+            while (writing.get()) {
+                TaskListSnapshot snapshot = store.snapshot("team");
+                int[] counts = new int[2];
+                snapshot.forEach(task -> counts[task.isCompleted() ? 1 : 0]++);
+                if (counts[0] + counts[1] != snapshot.size() || counts[1] != snapshot.completedCount() || snapshot.version() < lastVersion) {
+                    throw new IllegalStateException("Inconsistent snapshot at version " + snapshot.version());
+                }
+                lastVersion = snapshot.version();
+                reads[0]++;
+            }
+        });
+        reader.start();
+        runUsers(users, user -> work(new TaskSession(store, "team"), opsPerUser));
+        writing.set(false);
+        reader.join();
+
+        TaskListSnapshot last = store.snapshot("team");
+        long expectedCommits = (long) users * (2L * opsPerUser + 2L * (opsPerUser / 4));
+        if (last.size() != (long) users * opsPerUser || last.completedCount() != last.size()
+                || last.version() != expectedCommits || store.commits() != expectedCommits) {
+            throw new IllegalStateException("Lost updates: " + last.size() + " tasks, " + last.completedCount() + " completed, version "
+                    + last.version() + ", expected " + (long) users * opsPerUser + " tasks and " + expectedCommits + " commits");
+        }
+        System.out.printf("No lost updates: %,d users made %,d commits to one list (%,d retried); %,d snapshots read alongside were consistent.%n",
+                users, last.version(), store.conflicts(), reads[0]);
+    }
+
+    // One user's undo must not bring back a task another user has since deleted
+    private static void checkUndoConflict() {
+        SharedTaskStore store = new SharedTaskStore();
+        TaskSession alice = new TaskSession(store, "team");
+        TaskSession bob = new TaskSession(store, "team");
+        long id = alice.addTask(new Task.TaskBuilder("write report").build());
+        alice.markCompleted(id);
+        bob.deleteTask(id);
+        if (alice.undo() || alice.undo() || store.snapshot("team").get(id) != null) {
+            throw new IllegalStateException("An undo overwrote another user's delete.");
+        }
+        if (!bob.undo() || !store.snapshot("team").get(id).isCompleted()) {
+            throw new IllegalStateException("Undoing the delete did not restore the completed task.");
         }
-        currentState++;
-        tasks = history.get(currentState).getTaskState();
+        System.out.println("Undo skipped a change another user had overwritten.");
     }
 
-    private void saveState() {
-        // Remove any states after the current state index (redo not possible)
-        history = history.subList(0, currentState + 1);
-        history.add(new TaskMemento(tasks));
-        currentState = history.size() - 1;
+    private static long runUsers(int users, IntConsumer work) throws InterruptedException {
+        Thread[] workers = new Thread[users];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < users; t++) {
+            int user = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                work.accept(user);
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
     }
 }
 
 // Main class to handle user interaction
 public class ToDoListApp {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("page-bench")) {
+            TaskPageBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("journal-recovery")) {
+            int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+            Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("todo-journal");
+            TaskJournalRecoveryBenchmark.run(count, directory);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("reminder-bench")) {
+            ReminderBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("search-bench")) {
+            TaskSearchBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("shared-bench")) {
+            SharedTaskBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("undo-bench")) {
+            UndoBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("index-bench")) {
+            TaskIndexBenchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         TaskManager taskManager = new TaskManager();
+        ReminderScheduler reminders = new ReminderScheduler(1000, ZoneId.systemDefault(), new ReminderScheduler.Listener() {
+            @Override
+            public void due(Task task) {
+                System.out.println("\nReminder: \"" + task.getDescription() + "\" is due today.");
+            }
+
+            @Override
+            public void overdue(Task task) {
+                System.out.println("\nReminder: \"" + task.getDescription() + "\" is overdue.");
+            }
+        }, System.currentTimeMillis());
+        taskManager.attachReminders(reminders);
+        // Tasks and undo history survive restarts; -Dtodo.dir picks the data directory
+        TaskJournal journal = TaskJournal.open(Paths.get(System.getProperty("todo.dir", "todo-data")), taskManager, 50, 64 << 20);
+        reminders.start();
 
         while (true) {
             System.out.println("\nAvailable commands:");
@@ -159,7 +2642,8 @@ public class ToDoListApp {
             System.out.println("4. View Tasks");
             System.out.println("5. Undo");
             System.out.println("6. Redo");
-            System.out.println("7. Exit");
+            System.out.println("7. Search Tasks");
+            System.out.println("8. Exit");
 
             System.out.print("Enter command number: ");
             int command = scanner.nextInt();
@@ -194,18 +2678,26 @@ public class ToDoListApp {
                     System.out.println("1. Show all");
                     System.out.println("2. Show completed");
                     System.out.println("3. Show pending");
+                    System.out.println("4. Show due this week");
+                    System.out.println("5. Show overdue pending");
                     System.out.print("Choose a filter: ");
                     int filter = scanner.nextInt();
                     scanner.nextLine();  // Consume newline
                     switch (filter) {
                         case 1:
-                            taskManager.viewTasks("all");
+                            showPages(scanner, taskManager, "all");
                             break;
                         case 2:
-                            taskManager.viewTasks("completed");
+                            showPages(scanner, taskManager, "completed");
                             break;
                         case 3:
-                            taskManager.viewTasks("pending");
+                            showPages(scanner, taskManager, "pending");
+                            break;
+                        case 4:
+                            taskManager.viewTasks("due-this-week");
+                            break;
+                        case 5:
+                            taskManager.viewTasks("overdue");
                             break;
                         default:
                             System.out.println("Invalid filter.");
@@ -221,7 +2713,17 @@ public class ToDoListApp {
                     break;
 
                 case 7:
+                    System.out.print("Enter search terms (end a term with * to match by prefix): ");
+                    List<Task> found = taskManager.search(scanner.nextLine(), TaskManager.PAGE_SIZE);
+                    found.forEach(System.out::println);
+                    System.out.println(found.isEmpty() ? "No matching tasks." : found.size() == TaskManager.PAGE_SIZE
+                            ? "Showing the first " + found.size() + " matches." : found.size() + " match(es).");
+                    break;
+
+                case 8:
                     System.out.println("Exiting...");
+                    journal.close();
+                    reminders.close();
                     scanner.close();
                     return;
 
@@ -230,4 +2732,17 @@ public class ToDoListApp {
             }
         }
     }
+
+    // Shows a view one page at a time, asking before each further page
+    private static void showPages(Scanner scanner, TaskManager taskManager, String filter) {
+        System.out.println(taskManager.countTasks(filter) + " task(s).");
+        long cursor = taskManager.viewPage(filter, TaskManager.FIRST_PAGE);
+        while (cursor != TaskManager.END_OF_VIEW) {
+            System.out.print("Show more? (y/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                return;
+            }
+            cursor = taskManager.viewPage(filter, cursor);
+        }
+    }
 }